@@ -0,0 +1,66 @@
+package ru.stroy1click.order.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.*;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.Kryo5Codec;
+import ru.stroy1click.order.cache.CachedValue;
+import ru.stroy1click.order.cache.OrderCacheCodec;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование кэшированных списков заказов: Kryo5Codec Redisson-а против {@link OrderCacheCodec}.
+ * Размер значения в байтах печатается при подготовке каждого набора параметров.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+    @Param({"1", "50", "500"})
+    private int size;
+
+    @Param({"kryo", "compact"})
+    private String codecName;
+
+    private Codec codec;
+
+    private CachedValue cachedValue;
+
+    private ByteBuf encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        Kryo5Codec kryo5Codec = new Kryo5Codec();
+        this.codec = this.codecName.equals("compact") ? new OrderCacheCodec(kryo5Codec) : kryo5Codec;
+        this.cachedValue = new CachedValue(OrderFixtures.orderDtos(this.size), System.currentTimeMillis(), 15);
+        this.encoded = this.codec.getValueEncoder().encode(this.cachedValue);
+
+        System.out.printf("%n%s, %d orders: %d bytes, %d bytes per order%n", this.codecName, this.size,
+                this.encoded.readableBytes(), this.encoded.readableBytes() / this.size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.encoded.release();
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        ByteBuf buf = this.codec.getValueEncoder().encode(this.cachedValue);
+        try {
+            return buf.readableBytes();
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return this.codec.getValueDecoder().decode(this.encoded.duplicate(), null);
+    }
+}
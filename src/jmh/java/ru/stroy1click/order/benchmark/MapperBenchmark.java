@@ -0,0 +1,65 @@
+package ru.stroy1click.order.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.entity.Order;
+import ru.stroy1click.order.mapper.OrderItemMapper;
+import ru.stroy1click.order.mapper.OrderMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение ручного OrderMapper с прежним маппингом через ModelMapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int size;
+
+    private List<Order> orders;
+
+    private List<OrderDto> orderDtos;
+
+    private OrderMapper orderMapper;
+
+    private ModelMapper modelMapper;
+
+    @Setup
+    public void setUp() {
+        this.orders = OrderFixtures.orders(this.size);
+        this.orderDtos = OrderFixtures.orderDtos(this.size);
+        this.orderMapper = new OrderMapper(new OrderItemMapper(), new SimpleMeterRegistry());
+        this.modelMapper = new ModelMapper();
+    }
+
+    @Benchmark
+    public List<OrderDto> toDto_handWritten() {
+        return this.orderMapper.toDto(this.orders);
+    }
+
+    @Benchmark
+    public List<OrderDto> toDto_modelMapper() {
+        return this.orders.stream()
+                .map(order -> this.modelMapper.map(order, OrderDto.class))
+                .toList();
+    }
+
+    @Benchmark
+    public Order toEntity_handWritten() {
+        return this.orderMapper.toEntity(this.orderDtos.getFirst());
+    }
+
+    @Benchmark
+    public Order toEntity_modelMapper() {
+        return this.modelMapper.map(this.orderDtos.getFirst(), Order.class);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.stroy1click.order.benchmark;
+
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.entity.Order;
+import ru.stroy1click.order.entity.OrderItem;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тестовые данные для бенчмарков: заказы с заданным количеством позиций.
+ */
+final class OrderFixtures {
+
+    static final int ITEMS_PER_ORDER = 3;
+
+    private OrderFixtures() {
+    }
+
+    static List<Order> orders(int count) {
+        List<Order> orders = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            Order order = Order.builder()
+                    .id(i)
+                    .notes("Заказ №" + i + ", доставка до подъезда")
+                    .orderStatus(OrderStatus.values()[(int) (i % OrderStatus.values().length)])
+                    .createdAt(LocalDateTime.of(2024, 10, 1, 10, 0).plusMinutes(i))
+                    .updatedAt(LocalDateTime.of(2024, 10, 1, 10, 0).plusMinutes(i))
+                    .contactPhone("+7910" + String.format("%07d", i))
+                    .userId(500 + i % 50)
+                    .build();
+
+            List<OrderItem> items = new ArrayList<>(ITEMS_PER_ORDER);
+            for (int j = 1; j <= ITEMS_PER_ORDER; j++) {
+                items.add(OrderItem.builder()
+                        .id(i * ITEMS_PER_ORDER + j)
+                        .productId(j * 10)
+                        .quantity(j)
+                        .order(order)
+                        .build());
+            }
+            order.setOrderItems(items);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    static List<OrderDto> orderDtos(int count) {
+        List<OrderDto> orders = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            List<OrderItemDto> items = new ArrayList<>(ITEMS_PER_ORDER);
+            for (int j = 1; j <= ITEMS_PER_ORDER; j++) {
+                items.add(OrderItemDto.builder()
+                        .id(i * ITEMS_PER_ORDER + j)
+                        .productId(j * 10)
+                        .quantity(j)
+                        .build());
+            }
+
+            orders.add(OrderDto.builder()
+                    .id(i)
+                    .notes("Заказ №" + i + ", доставка до подъезда")
+                    .orderStatus(OrderStatus.values()[(int) (i % OrderStatus.values().length)])
+                    .createdAt(LocalDateTime.of(2024, 10, 1, 10, 0).plusMinutes(i))
+                    .updatedAt(LocalDateTime.of(2024, 10, 1, 10, 0).plusMinutes(i))
+                    .orderItems(items)
+                    .contactPhone("+7910" + String.format("%07d", i))
+                    .userId(500 + i % 50)
+                    .build());
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,75 @@
+package ru.stroy1click.order.benchmark;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.validation.FieldError;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.util.ValidationErrorUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Валидация входящего OrderDto (включая @Pattern на телефоне) и сборка текста ошибок для ответа.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+
+    private Validator validator;
+
+    private OrderDto validOrder;
+
+    private OrderDto invalidOrder;
+
+    private List<FieldError> fieldErrors;
+
+    @Setup
+    public void setUp() {
+        this.validatorFactory = Validation.buildDefaultValidatorFactory();
+        this.validator = this.validatorFactory.getValidator();
+
+        this.validOrder = OrderFixtures.orderDtos(1).getFirst();
+
+        this.invalidOrder = OrderFixtures.orderDtos(1).getFirst();
+        this.invalidOrder.setContactPhone("1234567");
+        this.invalidOrder.setUserId(0L);
+        this.invalidOrder.getOrderItems().getFirst().setQuantity(0);
+
+        this.fieldErrors = List.of(
+                new FieldError("orderDto", "contactPhone", "Номер телефона должен быть валидным"),
+                new FieldError("orderDto", "userId", "Id пользователя не может быть меньше 1"),
+                new FieldError("orderDto", "orderItems[0].quantity", "Количество единиц товара не может быть меньше 1")
+        );
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<OrderDto>> validate_validOrder() {
+        return this.validator.validate(this.validOrder);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<OrderDto>> validate_invalidOrder() {
+        return this.validator.validate(this.invalidOrder);
+    }
+
+    @Benchmark
+    public String collectErrorsToString() {
+        return ValidationErrorUtils.collectErrorsToString(this.fieldErrors);
+    }
+}
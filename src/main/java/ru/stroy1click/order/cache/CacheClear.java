@@ -5,7 +5,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * orderVersion и userOrdersFingerprint сбрасываются только после коммита: по ним отвечают 304 на If-None-Match,
+ * и значение, закэшированное между сбросом и коммитом, отдавало бы 304 на устаревший ETag весь TTL.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -16,6 +22,16 @@ public class CacheClear {
     public void clearOrdersByUserId(Long userId){
         log.info("clearOrdersByUserId {}", userId);
         deleteCache("ordersByUserId", userId);
+        deleteCache("ordersByUserIdFirstPage", userId);
+        clearUserOrdersFingerprint(userId);
+    }
+
+    public void clearUserOrdersFingerprint(Long userId){
+        afterCommit(() -> deleteCache("userOrdersFingerprint", userId));
+    }
+
+    public void clearOrderVersion(Long id){
+        afterCommit(() -> deleteCache("orderVersion", id));
     }
 
     private void deleteCache(String key, Object value){
@@ -24,4 +40,17 @@ public class CacheClear {
             cache.evict(value);
         }
     }
-}
\ No newline at end of file
+
+    private void afterCommit(Runnable action){
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.stroy1click.order.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Сообщение в Redis-топик о том, что запись локального кэша на других репликах устарела.
+ * key == null - сбросить кэш целиком.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheInvalidationMessage implements Serializable {
+
+    private String instanceId;
+
+    private String cacheName;
+
+    private Object key;
+}
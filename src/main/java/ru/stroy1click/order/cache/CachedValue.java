@@ -0,0 +1,52 @@
+package ru.stroy1click.order.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.cache.Cache;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Значение в {@link TwoLevelCache} вместе с метаданными для раннего обновления:
+ * когда запись истечёт в L2 и сколько заняла её загрузка.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CachedValue implements Cache.ValueWrapper, Serializable {
+
+    private Object value;
+
+    /**
+     * Момент истечения в L2 (epoch millis), 0 - неизвестен
+     */
+    private long expiresAt;
+
+    private long loadMillis;
+
+    @Override
+    public Object get() {
+        return this.value;
+    }
+
+    /**
+     * Записи, положенные до появления обёртки, хранятся в Redis как есть.
+     */
+    static CachedValue of(Object stored) {
+        return stored instanceof CachedValue cachedValue ? cachedValue : new CachedValue(stored, 0, 0);
+    }
+
+    /**
+     * Probabilistic early expiration (XFetch): чем ближе истечение и чем дольше загрузка, тем выше шанс,
+     * что текущий запрос обновит запись заранее. Обновления разных запросов размазываются во времени,
+     * и к моменту TTL не приходит толпа одновременных промахов.
+     */
+    boolean isRefreshDue(double beta, long now) {
+        if (this.expiresAt == 0 || beta <= 0) return false;
+
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble(); // (0, 1], чтобы не брать log(0)
+        return now - this.loadMillis * beta * Math.log(random) >= this.expiresAt;
+    }
+}
@@ -0,0 +1,426 @@
+package ru.stroy1click.order.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.handler.State;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.dto.OrderPageDto;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Компактный бинарный формат для значений кэшей заказов: {@link CachedValue}, {@link OrderDto}
+ * и списки и страницы OrderDto пишутся по известной схеме (varint, битовая маска заполненных полей, статус - ordinal,
+ * даты - секунды + наносекунды) без имён классов и полей. Прочие значения и ключи map-ов кодируются delegate.
+ * <p>
+ * Формат: [MAGIC][версия][флаги][данные], MAGIC отличает записи от сделанных стандартным codec-ом.
+ * Данные больше {@link #COMPRESSION_THRESHOLD} байт сжимаются Deflater-ом.
+ * Запись неизвестной версии или повреждённая запись декодируется в null, то есть считается промахом кэша
+ * и перезаписывается. При несовместимом изменении схемы нужно поднять {@link #FORMAT_VERSION};
+ * новые значения OrderStatus добавлять только в конец enum-а.
+ */
+@Slf4j
+public class OrderCacheCodec extends BaseCodec {
+
+    private static final byte MAGIC = (byte) 0xB7;
+
+    static final byte FORMAT_VERSION = 1;
+
+    static final int COMPRESSION_THRESHOLD = 2_048;
+
+    private static final byte FLAG_COMPRESSED = 1;
+
+    private static final byte TAG_NULL = 0;
+
+    private static final byte TAG_CACHED_VALUE = 1;
+
+    private static final byte TAG_ORDER = 2;
+
+    private static final byte TAG_ORDER_LIST = 3;
+
+    private static final byte TAG_DELEGATE = 4;
+
+    private static final byte TAG_ORDER_PAGE = 5;
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    /**
+     * Создание Deflater/Inflater выделяет сотни килобайт нативной памяти zlib, поэтому они переиспользуются.
+     * Очередь ограничена: лишние после всплеска нагрузки освобождаются сразу.
+     */
+    private static final int CODER_POOL_SIZE = 32;
+
+    private final Codec delegate;
+
+    private final Queue<Deflater> deflaters = new ArrayBlockingQueue<>(CODER_POOL_SIZE);
+
+    private final Queue<Inflater> inflaters = new ArrayBlockingQueue<>(CODER_POOL_SIZE);
+
+    private final Encoder encoder = this::encode;
+
+    private final Decoder<Object> decoder = (buf, state) -> decode(buf, state);
+
+    public OrderCacheCodec(Codec delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Нужен Redisson-у: при useThreadClassLoader он копирует codec под class loader текущего потока.
+     */
+    public OrderCacheCodec(ClassLoader classLoader, OrderCacheCodec codec) throws ReflectiveOperationException {
+        this(copy(classLoader, codec.delegate));
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return this.decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return this.encoder;
+    }
+
+    /**
+     * Ключи (id заказа, id пользователя) кодируются как раньше, чтобы не менять имена полей в Redis.
+     */
+    @Override
+    public Decoder<Object> getMapKeyDecoder() {
+        return this.delegate.getMapKeyDecoder();
+    }
+
+    @Override
+    public Encoder getMapKeyEncoder() {
+        return this.delegate.getMapKeyEncoder();
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return this.delegate.getClassLoader();
+    }
+
+    private ByteBuf encode(Object value) throws IOException {
+        ByteBuf payload = ByteBufAllocator.DEFAULT.buffer();
+        ByteBuf out = ByteBufAllocator.DEFAULT.buffer();
+        try {
+            writeValue(payload, value);
+
+            out.writeByte(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            if (payload.readableBytes() > COMPRESSION_THRESHOLD) {
+                int flagsIndex = out.writerIndex();
+                out.writeByte(FLAG_COMPRESSED);
+                writeVarLong(out, payload.readableBytes());
+                if (deflate(payload, out)) return out;
+                out.writerIndex(flagsIndex);
+            }
+            out.writeByte(0);
+            out.writeBytes(payload);
+            return out;
+        } catch (IOException | RuntimeException e) {
+            out.release();
+            throw e;
+        } finally {
+            payload.release();
+        }
+    }
+
+    private Object decode(ByteBuf buf, State state) throws IOException {
+        if (buf.readableBytes() < 3 || buf.readByte() != MAGIC) {
+            log.warn("order cache entry in unknown format, treated as cache miss");
+            return null;
+        }
+        byte version = buf.readByte();
+        if (version != FORMAT_VERSION) {
+            log.warn("unknown order cache format version {}, treated as cache miss", version);
+            return null;
+        }
+
+        try {
+            byte flags = buf.readByte();
+            if ((flags & FLAG_COMPRESSED) == 0) {
+                return readValue(buf, state);
+            }
+
+            int length = (int) readVarLong(buf);
+            ByteBuf inflated = ByteBufAllocator.DEFAULT.buffer(length, length);
+            try {
+                inflate(buf, inflated);
+                return readValue(inflated, state);
+            } finally {
+                inflated.release();
+            }
+        } catch (RuntimeException | DataFormatException e) {
+            log.warn("corrupted order cache entry, treated as cache miss", e);
+            return null;
+        }
+    }
+
+    private void writeValue(ByteBuf out, Object value) throws IOException {
+        switch (value) {
+            case null -> out.writeByte(TAG_NULL);
+            case CachedValue cachedValue -> {
+                out.writeByte(TAG_CACHED_VALUE);
+                writeVarLong(out, cachedValue.getExpiresAt());
+                writeVarLong(out, cachedValue.getLoadMillis());
+                writeValue(out, cachedValue.getValue());
+            }
+            case OrderDto orderDto -> {
+                out.writeByte(TAG_ORDER);
+                writeOrder(out, orderDto);
+            }
+            case List<?> list when isOrderList(list) -> {
+                out.writeByte(TAG_ORDER_LIST);
+                writeOrders(out, list);
+            }
+            case OrderPageDto page when page.getOrders() != null -> {
+                out.writeByte(TAG_ORDER_PAGE);
+                writeOrders(out, page.getOrders());
+                out.writeBoolean(page.getNextCursor() != null);
+                if (page.getNextCursor() != null) writeString(out, page.getNextCursor());
+            }
+            default -> {
+                out.writeByte(TAG_DELEGATE);
+                ByteBuf encoded = this.delegate.getValueEncoder().encode(value);
+                try {
+                    writeVarLong(out, encoded.readableBytes());
+                    out.writeBytes(encoded);
+                } finally {
+                    encoded.release();
+                }
+            }
+        }
+    }
+
+    private Object readValue(ByteBuf in, State state) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_CACHED_VALUE -> {
+                long expiresAt = readVarLong(in);
+                long loadMillis = readVarLong(in);
+                yield new CachedValue(readValue(in, state), expiresAt, loadMillis);
+            }
+            case TAG_ORDER -> readOrder(in);
+            case TAG_ORDER_LIST -> readOrders(in);
+            case TAG_ORDER_PAGE -> {
+                List<OrderDto> orders = readOrders(in);
+                String nextCursor = in.readBoolean() ? readString(in) : null;
+                yield new OrderPageDto(orders, nextCursor);
+            }
+            case TAG_DELEGATE -> {
+                int length = (int) readVarLong(in);
+                yield this.delegate.getValueDecoder().decode(in.readSlice(length), state);
+            }
+            default -> throw new IllegalStateException("unknown order cache tag " + tag);
+        };
+    }
+
+    private static boolean isOrderList(List<?> list) {
+        for (Object element : list) {
+            if (!(element instanceof OrderDto)) return false;
+        }
+        return true;
+    }
+
+    private static void writeOrders(ByteBuf out, List<?> orderDtos) {
+        writeVarLong(out, orderDtos.size());
+        for (Object orderDto : orderDtos) {
+            writeOrder(out, (OrderDto) orderDto);
+        }
+    }
+
+    private static List<OrderDto> readOrders(ByteBuf in) {
+        int size = (int) readVarLong(in);
+        List<OrderDto> orders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            orders.add(readOrder(in));
+        }
+        return orders;
+    }
+
+    private static void writeOrder(ByteBuf out, OrderDto orderDto) {
+        int mask = bit(0, orderDto.getId())
+                | bit(1, orderDto.getNotes())
+                | bit(2, orderDto.getOrderStatus())
+                | bit(3, orderDto.getCreatedAt())
+                | bit(4, orderDto.getUpdatedAt())
+                | bit(5, orderDto.getOrderItems())
+                | bit(6, orderDto.getContactPhone())
+                | bit(7, orderDto.getUserId())
+                | bit(8, orderDto.getVersion());
+        writeVarLong(out, mask);
+
+        if (orderDto.getId() != null) writeVarLong(out, orderDto.getId());
+        if (orderDto.getNotes() != null) writeString(out, orderDto.getNotes());
+        if (orderDto.getOrderStatus() != null) writeVarLong(out, orderDto.getOrderStatus().ordinal());
+        if (orderDto.getCreatedAt() != null) writeDateTime(out, orderDto.getCreatedAt());
+        if (orderDto.getUpdatedAt() != null) writeDateTime(out, orderDto.getUpdatedAt());
+        if (orderDto.getOrderItems() != null) {
+            writeVarLong(out, orderDto.getOrderItems().size());
+            for (OrderItemDto item : orderDto.getOrderItems()) {
+                writeItem(out, item);
+            }
+        }
+        if (orderDto.getContactPhone() != null) writeString(out, orderDto.getContactPhone());
+        if (orderDto.getUserId() != null) writeVarLong(out, orderDto.getUserId());
+        if (orderDto.getVersion() != null) writeVarLong(out, orderDto.getVersion());
+    }
+
+    private static OrderDto readOrder(ByteBuf in) {
+        int mask = (int) readVarLong(in);
+        OrderDto orderDto = new OrderDto();
+
+        if (has(mask, 0)) orderDto.setId(readVarLong(in));
+        if (has(mask, 1)) orderDto.setNotes(readString(in));
+        if (has(mask, 2)) orderDto.setOrderStatus(STATUSES[(int) readVarLong(in)]);
+        if (has(mask, 3)) orderDto.setCreatedAt(readDateTime(in));
+        if (has(mask, 4)) orderDto.setUpdatedAt(readDateTime(in));
+        if (has(mask, 5)) {
+            int size = (int) readVarLong(in);
+            List<OrderItemDto> items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                items.add(readItem(in));
+            }
+            orderDto.setOrderItems(items);
+        }
+        if (has(mask, 6)) orderDto.setContactPhone(readString(in));
+        if (has(mask, 7)) orderDto.setUserId(readVarLong(in));
+        if (has(mask, 8)) orderDto.setVersion(readVarLong(in));
+        return orderDto;
+    }
+
+    private static void writeItem(ByteBuf out, OrderItemDto item) {
+        int mask = bit(0, item.getId()) | bit(1, item.getProductId()) | bit(2, item.getQuantity());
+        out.writeByte(mask);
+
+        if (item.getId() != null) writeVarLong(out, item.getId());
+        if (item.getProductId() != null) writeVarLong(out, item.getProductId());
+        if (item.getQuantity() != null) writeVarLong(out, item.getQuantity());
+    }
+
+    private static OrderItemDto readItem(ByteBuf in) {
+        int mask = in.readByte();
+        OrderItemDto item = new OrderItemDto();
+
+        if (has(mask, 0)) item.setId(readVarLong(in));
+        if (has(mask, 1)) item.setProductId((int) readVarLong(in));
+        if (has(mask, 2)) item.setQuantity((int) readVarLong(in));
+        return item;
+    }
+
+    private static int bit(int index, Object field) {
+        return field == null ? 0 : 1 << index;
+    }
+
+    private static boolean has(int mask, int index) {
+        return (mask & (1 << index)) != 0;
+    }
+
+    private static void writeDateTime(ByteBuf out, LocalDateTime dateTime) {
+        writeVarLong(out, dateTime.toEpochSecond(ZoneOffset.UTC));
+        writeVarLong(out, dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(ByteBuf in) {
+        long epochSecond = readVarLong(in);
+        int nano = (int) readVarLong(in);
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        writeVarLong(out, ByteBufUtil.utf8Bytes(value));
+        out.writeCharSequence(value, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = (int) readVarLong(in);
+        return in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * ZigZag + varint: небольшие по модулю числа (id, количество, статус) занимают 1-3 байта вместо 8.
+     */
+    private static void writeVarLong(ByteBuf out, long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.writeByte((int) zigZag);
+    }
+
+    private static long readVarLong(ByteBuf in) {
+        long zigZag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            zigZag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+        throw new IllegalStateException("malformed varint");
+    }
+
+    /**
+     * Сжимает payload прямо в out, без промежуточных массивов.
+     *
+     * @return false - сжатие не уменьшило данные, out нужно откатить
+     */
+    private boolean deflate(ByteBuf payload, ByteBuf out) {
+        Deflater deflater = this.deflaters.poll();
+        if (deflater == null) deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(payload.nioBuffer());
+            deflater.finish();
+
+            int limit = out.writerIndex() + payload.readableBytes();
+            while (!deflater.finished()) {
+                if (out.writerIndex() >= limit) return false;
+                out.ensureWritable(limit - out.writerIndex());
+                int written = deflater.deflate(out.nioBuffer(out.writerIndex(), out.writableBytes()));
+                out.writerIndex(out.writerIndex() + written);
+            }
+            return out.writerIndex() < limit;
+        } finally {
+            deflater.reset();
+            if (!this.deflaters.offer(deflater)) deflater.end();
+        }
+    }
+
+    private void inflate(ByteBuf in, ByteBuf out) throws DataFormatException {
+        Inflater inflater = this.inflaters.poll();
+        if (inflater == null) inflater = new Inflater();
+        try {
+            inflater.setInput(in.nioBuffer());
+            while (out.isWritable() && !inflater.finished()) {
+                int n = inflater.inflate(out.nioBuffer(out.writerIndex(), out.writableBytes()));
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("truncated order cache entry");
+                }
+                out.writerIndex(out.writerIndex() + n);
+            }
+        } finally {
+            inflater.reset();
+            if (!this.inflaters.offer(inflater)) inflater.end();
+        }
+    }
+}
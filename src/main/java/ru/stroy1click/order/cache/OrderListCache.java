@@ -0,0 +1,335 @@
+package ru.stroy1click.order.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.*;
+import org.redisson.client.codec.LongCodec;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.mapper.OrderMapper;
+import ru.stroy1click.order.repository.OrderJdbcRepository;
+import ru.stroy1click.order.repository.OrderRepository;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+
+/**
+ * Инкрементально поддерживаемый в Redis список заказов для GET /api/v1/orders без фильтров:
+ * sorted set id (score = id) задаёт порядок keyset-пагинации, hash хранит OrderDto по id.
+ * Запись меняет только свой заказ, поэтому кэш списка не сбрасывается целиком при каждом create/update/delete.
+ * <p>
+ * Пока индекс не построен, чтение идёт в базу, а индекс один раз строится в фоне потоковым чтением таблицы.
+ */
+@Slf4j
+@Component
+public class OrderListCache {
+
+    /**
+     * v2 - заказы хранятся в {@link OrderCacheCodec}, старый индекс бросаем и строим заново.
+     */
+    private static final String KEY_PREFIX = "order-service:orders-list:v2:";
+
+    private static final String IDS_KEY = KEY_PREFIX + "ids";
+
+    private static final String ORDERS_KEY = KEY_PREFIX + "orders";
+
+    private static final String READY_KEY = KEY_PREFIX + "ready";
+
+    private static final String WARMING_KEY = KEY_PREFIX + "warming";
+
+    private static final String DIRTY_KEY = KEY_PREFIX + "dirty";
+
+    private static final String WARM_UP_LOCK_KEY = KEY_PREFIX + "warm-up-lock";
+
+    private static final int WARM_UP_CHUNK_SIZE = 1_000;
+
+    private final RScoredSortedSet<Long> ids;
+
+    private final RMap<Long, OrderDto> orders;
+
+    private final RBucket<Boolean> ready;
+
+    private final RBucket<Boolean> warming;
+
+    private final RSet<Long> dirty;
+
+    private final RLock warmUpLock;
+
+    private final OrderJdbcRepository orderJdbcRepository;
+
+    private final OrderRepository orderRepository;
+
+    private final OrderMapper orderMapper;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final TransactionTemplate primaryTransaction;
+
+    private final AsyncTaskExecutor asyncTaskExecutor;
+
+    private final boolean enabled;
+
+    private final AtomicBoolean warmUpScheduled = new AtomicBoolean();
+
+    public OrderListCache(RedissonClient redissonClient,
+                          OrderCacheCodec orderCacheCodec,
+                          OrderJdbcRepository orderJdbcRepository,
+                          OrderRepository orderRepository,
+                          OrderMapper orderMapper,
+                          TransactionTemplate transactionTemplate,
+                          @Qualifier("asyncTaskExecutor") AsyncTaskExecutor asyncTaskExecutor,
+                          @Value("${cache.orders-list.enabled:true}") boolean enabled) {
+        this.ids = redissonClient.getScoredSortedSet(IDS_KEY, LongCodec.INSTANCE);
+        this.orders = redissonClient.getMap(ORDERS_KEY, orderCacheCodec);
+        this.ready = redissonClient.getBucket(READY_KEY);
+        this.warming = redissonClient.getBucket(WARMING_KEY);
+        this.dirty = redissonClient.getSet(DIRTY_KEY, LongCodec.INSTANCE);
+        this.warmUpLock = redissonClient.getLock(WARM_UP_LOCK_KEY);
+        this.orderJdbcRepository = orderJdbcRepository;
+        this.orderRepository = orderRepository;
+        this.orderMapper = orderMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        // не read-only транзакция уходит на primary: перечитанные заказы не должны отставать, как реплика.
+        // REQUIRES_NEW - из afterCommit нельзя продолжать уже завершённую транзакцию
+        this.primaryTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.primaryTransaction.setReadOnly(false);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.asyncTaskExecutor = asyncTaskExecutor;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Страница заказов с id больше afterId. Пустой Optional - индекс ещё не готов, читать нужно из базы.
+     */
+    public Optional<List<OrderDto>> getPage(Long afterId, int size) {
+        if (!this.enabled) return Optional.empty();
+
+        if (!Boolean.TRUE.equals(this.ready.get())) {
+            scheduleWarmUp();
+            return Optional.empty();
+        }
+
+        Collection<Long> pageIds = this.ids.valueRange(
+                afterId == null ? Double.NEGATIVE_INFINITY : afterId, false,
+                Double.POSITIVE_INFINITY, true,
+                0, size
+        );
+        if (pageIds.isEmpty()) return Optional.of(List.of());
+
+        Map<Long, OrderDto> found = this.orders.getAll(new HashSet<>(pageIds));
+        List<OrderDto> page = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            OrderDto orderDto = found.get(id);
+            // заказ удалили между чтением id и чтением данных - отдаём страницу из базы
+            if (orderDto == null) return Optional.empty();
+            page.add(orderDto);
+        }
+        return Optional.of(page);
+    }
+
+    /**
+     * Добавляет или обновляет заказ после коммита текущей транзакции.
+     */
+    public void putAfterCommit(OrderDto orderDto) {
+        afterCommit(() -> put(orderDto));
+    }
+
+    public void putAllAfterCommit(List<OrderDto> orderDtos) {
+        afterCommit(() -> orderDtos.forEach(this::put));
+    }
+
+    /**
+     * Применяет частичное изменение к закэшированному заказу после коммита, не перечитывая его из базы.
+     * Изменение применяется, только если оно следующее за закэшированной версией. Иначе afterCommit
+     * соседних апдейтов выполнились не по порядку, и поля пропущенной версии потерялись бы:
+     * заказ убирается из кэша и перечитывается с primary.
+     */
+    public void patchAfterCommit(Long id, Long version, UnaryOperator<OrderDto> patch) {
+        afterCommit(() -> {
+            markDirty(id);
+            AtomicBoolean outOfOrder = new AtomicBoolean();
+            this.orders.compute(id, (key, cached) -> {
+                if (cached != null && cached.getVersion() != null && Objects.equals(version, cached.getVersion() + 1)) {
+                    return patch.apply(cached);
+                }
+                outOfOrder.set(true);
+                return null;
+            });
+            if (outOfOrder.get() && this.ids.contains(id)) {
+                reload(id);
+            }
+        });
+    }
+
+    /**
+     * Удаляет заказ после коммита текущей транзакции.
+     */
+    public void removeAfterCommit(Long id) {
+        afterCommit(() -> {
+            markDirty(id);
+            this.ids.remove(id);
+            this.orders.fastRemove(id);
+        });
+    }
+
+    /**
+     * Перечитывает заказ с primary. Более новую версию, которую успел положить параллельный апдейт
+     * или другое перечитывание, не затирает.
+     */
+    private void reload(Long id) {
+        Optional<OrderDto> actual = this.primaryTransaction.execute(status ->
+                this.orderRepository.findById(id).map(this.orderMapper::toDto)
+        );
+        if (actual == null || actual.isEmpty()) {
+            this.ids.remove(id);
+            this.orders.fastRemove(id);
+            return;
+        }
+
+        OrderDto orderDto = actual.get();
+        this.orders.compute(id, (key, cached) ->
+                cached != null && cached.getVersion() != null && orderDto.getVersion() != null
+                        && cached.getVersion() >= orderDto.getVersion() ? cached : orderDto
+        );
+    }
+
+    private void put(OrderDto orderDto) {
+        if (!this.enabled) return;
+
+        markDirty(orderDto.getId());
+        this.orders.fastPut(orderDto.getId(), orderDto);
+        this.ids.add(orderDto.getId().doubleValue(), orderDto.getId());
+    }
+
+    /**
+     * Во время построения индекса фоновая загрузка может записать устаревшую версию заказа поверх свежей,
+     * такие id после загрузки перечитываются из базы.
+     */
+    private void markDirty(Long id) {
+        if (Boolean.TRUE.equals(this.warming.get())) {
+            this.dirty.add(id);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!this.enabled) return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runSafely(action);
+                }
+            });
+        } else {
+            runSafely(action);
+        }
+    }
+
+    private void runSafely(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            // индекс может разойтись с базой - сбрасываем его, он будет перестроен
+            log.error("orders list cache update failed, index will be rebuilt", e);
+            this.ready.delete();
+        }
+    }
+
+    private void scheduleWarmUp() {
+        if (this.warmUpScheduled.compareAndSet(false, true)) {
+            this.asyncTaskExecutor.execute(() -> {
+                try {
+                    warmUp();
+                } finally {
+                    this.warmUpScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private void warmUp() {
+        boolean locked = false;
+        try {
+            locked = this.warmUpLock.tryLock(0, 30, TimeUnit.MINUTES);
+            if (!locked || Boolean.TRUE.equals(this.ready.get())) return;
+
+            log.info("orders list cache warm-up started");
+            this.warming.set(true);
+            this.dirty.delete();
+
+            Map<Long, Double> idsChunk = new HashMap<>(WARM_UP_CHUNK_SIZE);
+            Map<Long, OrderDto> ordersChunk = new HashMap<>(WARM_UP_CHUNK_SIZE);
+            this.readOnlyTransaction.executeWithoutResult(status ->
+                    this.orderJdbcRepository.streamAll(null, null, null, orderDto -> {
+                        idsChunk.put(orderDto.getId(), orderDto.getId().doubleValue());
+                        ordersChunk.put(orderDto.getId(), orderDto);
+                        if (idsChunk.size() == WARM_UP_CHUNK_SIZE) {
+                            flushChunk(idsChunk, ordersChunk);
+                        }
+                    })
+            );
+            flushChunk(idsChunk, ordersChunk);
+
+            // фоновая загрузка больше ничего не перезапишет: новые записи сами обновляют кэш и не помечаются
+            this.warming.delete();
+            refreshDirty();
+            this.ready.set(true);
+            log.info("orders list cache warm-up finished, {} orders", this.ids.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("orders list cache warm-up failed", e);
+        } finally {
+            this.warming.delete();
+            if (locked) this.warmUpLock.unlock();
+        }
+    }
+
+    private void flushChunk(Map<Long, Double> idsChunk, Map<Long, OrderDto> ordersChunk) {
+        if (idsChunk.isEmpty()) return;
+
+        this.orders.putAll(ordersChunk);
+        this.ids.addAll(idsChunk);
+        idsChunk.clear();
+        ordersChunk.clear();
+    }
+
+    /**
+     * Перечитывает с primary заказы, изменённые во время загрузки. Обработанные id снимаются поштучно,
+     * а не удалением всего множества, чтобы не потерять id, добавленные параллельной записью;
+     * цикл идёт, пока множество не опустеет.
+     */
+    private void refreshDirty() {
+        Set<Long> dirtyIds;
+        while (!(dirtyIds = this.dirty.readAll()).isEmpty()) {
+            Set<Long> batch = dirtyIds;
+            this.primaryTransaction.executeWithoutResult(status -> {
+                Map<Long, OrderDto> actual = new HashMap<>(batch.size());
+                this.orderRepository.findAllById(batch)
+                        .forEach(order -> actual.put(order.getId(), this.orderMapper.toDto(order)));
+
+                for (Long id : batch) {
+                    OrderDto orderDto = actual.get(id);
+                    if (orderDto == null) {
+                        this.ids.remove(id);
+                        this.orders.fastRemove(id);
+                    } else {
+                        this.orders.fastPut(id, orderDto);
+                        this.ids.add(id.doubleValue(), id);
+                    }
+                }
+            });
+            this.dirty.removeAll(batch);
+        }
+    }
+}
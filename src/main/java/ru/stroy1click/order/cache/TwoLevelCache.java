@@ -0,0 +1,291 @@
+package ru.stroy1click.order.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Кэш из двух уровней: L1 - локальный Caffeine в памяти реплики, L2 - общий Redisson-кэш.
+ * Попадание в L1 обходится без сетевого запроса в Redis. Любая запись или удаление уходит в L2
+ * и рассылается остальным репликам через Redis pub/sub, чтобы они сбросили свою копию в L1.
+ * <p>
+ * Защита от cache stampede для get(key, loader) (@Cacheable(sync = true)): одновременные промахи по ключу
+ * внутри реплики ждут одну загрузку, между репликами загрузку сериализует блокировка RedissonCache по ключу.
+ * Незадолго до TTL запись с некоторой вероятностью обновляется заранее (см. {@link CachedValue#isRefreshDue}).
+ */
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+
+    private final com.github.benmanes.caffeine.cache.Cache<Object, CachedValue> localCache;
+
+    private final Cache remoteCache;
+
+    private final Duration timeToLive;
+
+    private final double earlyRefreshBeta;
+
+    private final ConcurrentMap<Object, CompletableFuture<CachedValue>> loads = new ConcurrentHashMap<>();
+
+    private final Consumer<CacheInvalidationMessage> invalidationPublisher;
+
+    private final String instanceId;
+
+    private final Counter localHits;
+
+    private final Counter localMisses;
+
+    private final Counter remoteHits;
+
+    private final Counter remoteMisses;
+
+    private final Timer localHitTimer;
+
+    private final Timer remoteHitTimer;
+
+    private final Timer loadTimer;
+
+    /**
+     * @param timeToLive       TTL записей в L2, Duration.ZERO - без ограничения (раннее обновление выключено)
+     * @param earlyRefreshBeta агрессивность раннего обновления, 1.0 - стандартная, 0 - выключено
+     */
+    public TwoLevelCache(String name, Cache remoteCache, long maximumSize, Duration expireAfterWrite,
+                         Duration timeToLive, double earlyRefreshBeta,
+                         String instanceId, Consumer<CacheInvalidationMessage> invalidationPublisher,
+                         MeterRegistry meterRegistry) {
+        this.name = name;
+        this.remoteCache = remoteCache;
+        this.timeToLive = timeToLive;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.instanceId = instanceId;
+        this.invalidationPublisher = invalidationPublisher;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+
+        this.localHits = counter(meterRegistry, "l1", "hit");
+        this.localMisses = counter(meterRegistry, "l1", "miss");
+        this.remoteHits = counter(meterRegistry, "l2", "hit");
+        this.remoteMisses = counter(meterRegistry, "l2", "miss");
+        this.localHitTimer = timer(meterRegistry, "l1");
+        this.remoteHitTimer = timer(meterRegistry, "l2");
+        this.loadTimer = timer(meterRegistry, "load");
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this.remoteCache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        CachedValue local = this.localCache.getIfPresent(key);
+        if (local != null) {
+            this.localHits.increment();
+            return local;
+        }
+        this.localMisses.increment();
+
+        ValueWrapper remote = this.remoteCache.get(key);
+        if (remote == null) {
+            this.remoteMisses.increment();
+            return null;
+        }
+        this.remoteHits.increment();
+        CachedValue cachedValue = CachedValue.of(remote.get());
+        this.localCache.put(key, cachedValue);
+        return cachedValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) return null;
+
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value
+            );
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        long start = System.nanoTime();
+        CachedValue cachedValue = this.localCache.getIfPresent(key);
+        if (cachedValue == null) {
+            this.localMisses.increment();
+            AtomicBoolean loaded = new AtomicBoolean();
+            cachedValue = loadOnce(key, () -> {
+                // RedissonCache сам берёт распределённую блокировку по ключу на время загрузки
+                CachedValue value = CachedValue.of(
+                        this.remoteCache.get(key, (Callable<Object>) () -> {
+                            loaded.set(true);
+                            this.remoteMisses.increment();
+                            return load(valueLoader);
+                        })
+                );
+                this.localCache.put(key, value);
+                return value;
+            });
+            // дождавшиеся чужой загрузки считаются попаданием в L2: сами они в базу не ходили
+            if (loaded.get()) {
+                this.loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } else {
+                this.remoteHits.increment();
+                this.remoteHitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            return (T) cachedValue.get();
+        }
+        this.localHits.increment();
+
+        // L1 живёт минуту, поэтому близкие к TTL записи читаются в основном отсюда
+        if (cachedValue.isRefreshDue(this.earlyRefreshBeta, System.currentTimeMillis())) {
+            cachedValue = refreshEarly(key, valueLoader, cachedValue);
+        }
+        this.localHitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return (T) cachedValue.get();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, new CachedValue(value, expiresAt(), 0));
+    }
+
+    @Override
+    public void evict(Object key) {
+        this.remoteCache.evict(key);
+        this.localCache.invalidate(key);
+        publish(key);
+    }
+
+    @Override
+    public void clear() {
+        this.remoteCache.clear();
+        this.localCache.invalidateAll();
+        publish(null);
+    }
+
+    /**
+     * Вызывается при получении сообщения от другой реплики: трогаем только L1, L2 уже актуален.
+     */
+    void invalidateLocal(Object key) {
+        if (key == null) {
+            this.localCache.invalidateAll();
+        } else {
+            this.localCache.invalidate(key);
+        }
+    }
+
+    /**
+     * Первый промахнувшийся поток загружает значение, остальные ждут его результат, а не идут в L2 и базу сами.
+     */
+    private CachedValue loadOnce(Object key, Supplier<CachedValue> loader) {
+        CompletableFuture<CachedValue> own = new CompletableFuture<>();
+        CompletableFuture<CachedValue> inFlight = this.loads.putIfAbsent(key, own);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return lead(key, own, loader);
+    }
+
+    /**
+     * Обновляет запись до истечения. Если ключ уже загружается другим потоком, отдаём текущее значение без ожидания.
+     */
+    private CachedValue refreshEarly(Object key, Callable<?> valueLoader, CachedValue current) {
+        CompletableFuture<CachedValue> own = new CompletableFuture<>();
+        if (this.loads.putIfAbsent(key, own) != null) return current;
+
+        return lead(key, own, () -> {
+            CachedValue refreshed;
+            try {
+                refreshed = load(valueLoader);
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            put(key, refreshed);
+            return refreshed;
+        });
+    }
+
+    private CachedValue lead(Object key, CompletableFuture<CachedValue> own, Supplier<CachedValue> loader) {
+        try {
+            CachedValue value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.loads.remove(key, own);
+        }
+    }
+
+    /**
+     * Исключения загрузчика не оборачиваются: RedissonCache сам заворачивает их в ValueRetrievalException.
+     */
+    private CachedValue load(Callable<?> valueLoader) throws Exception {
+        long start = System.currentTimeMillis();
+        Object value = valueLoader.call();
+        return new CachedValue(value, expiresAt(), Math.max(1, System.currentTimeMillis() - start));
+    }
+
+    private void put(Object key, CachedValue cachedValue) {
+        this.remoteCache.put(key, cachedValue);
+        this.localCache.put(key, cachedValue);
+        publish(key);
+    }
+
+    private long expiresAt() {
+        return this.timeToLive.isZero() ? 0 : System.currentTimeMillis() + this.timeToLive.toMillis();
+    }
+
+    private void publish(Object key) {
+        this.invalidationPublisher.accept(new CacheInvalidationMessage(this.instanceId, this.name, key));
+    }
+
+    private Counter counter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("order.cache.gets")
+                .description("Обращения к кэшу по уровням")
+                .tag("cache", this.name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Timer timer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("order.cache.get")
+                .description("Время get(key, loader): из L1, из L2 или с загрузкой из базы")
+                .tag("cache", this.name)
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.stroy1click.order.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Оборачивает кэши remoteCacheManager в {@link TwoLevelCache} и слушает топик инвалидации,
+ * общий для всех реплик сервиса.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager {
+
+    private static final String INVALIDATION_TOPIC = "order-service:cache-invalidation";
+
+    private final CacheManager remoteCacheManager;
+
+    private final MeterRegistry meterRegistry;
+
+    private final long maximumSize;
+
+    private final Duration expireAfterWrite;
+
+    private final Map<String, Duration> timeToLive;
+
+    private final double earlyRefreshBeta;
+
+    private final RTopic topic;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param timeToLive TTL кэшей в L2 по имени, для раннего обновления записей
+     */
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, RedissonClient redissonClient,
+                                MeterRegistry meterRegistry, long maximumSize, Duration expireAfterWrite,
+                                Map<String, Duration> timeToLive, double earlyRefreshBeta) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.meterRegistry = meterRegistry;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.timeToLive = timeToLive;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.topic = redissonClient.getTopic(INVALIDATION_TOPIC);
+        this.topic.addListener(CacheInvalidationMessage.class, (channel, message) -> onInvalidation(message));
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return this.caches.computeIfAbsent(name, cacheName -> {
+            Cache remoteCache = this.remoteCacheManager.getCache(cacheName);
+            if (remoteCache == null) return null;
+
+            return new TwoLevelCache(
+                    cacheName,
+                    remoteCache,
+                    this.maximumSize,
+                    this.expireAfterWrite,
+                    this.timeToLive.getOrDefault(cacheName, Duration.ZERO),
+                    this.earlyRefreshBeta,
+                    this.instanceId,
+                    this.topic::publishAsync,
+                    this.meterRegistry
+            );
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return this.remoteCacheManager.getCacheNames();
+    }
+
+    private void onInvalidation(CacheInvalidationMessage message) {
+        if (this.instanceId.equals(message.getInstanceId())) return;
+
+        TwoLevelCache cache = this.caches.get(message.getCacheName());
+        if (cache != null) {
+            log.debug("invalidate local cache {} {}", message.getCacheName(), message.getKey());
+            cache.invalidateLocal(message.getKey());
+        }
+    }
+}
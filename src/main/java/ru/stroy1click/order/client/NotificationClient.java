@@ -1,8 +1,20 @@
 package ru.stroy1click.order.client;
 
+import reactor.core.publisher.Mono;
 import ru.stroy1click.order.dto.OrderDto;
 
+import java.util.List;
+
+/**
+ * Неблокирующий клиент сервиса уведомлений: запрос уходит при подписке, Mono завершается после ответа.
+ */
 public interface NotificationClient {
 
-    void sendOrderNotification(OrderDto orderDto);
+    Mono<Void> sendOrderNotification(OrderDto orderDto);
+
+    /**
+     * Отправляет уведомления одним запросом. Если сервис уведомлений не принимает пачки,
+     * уведомления отправляются по одному.
+     */
+    Mono<Void> sendOrderNotifications(List<OrderDto> orderDtos);
 }
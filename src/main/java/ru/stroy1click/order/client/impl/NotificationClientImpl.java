@@ -1,47 +1,212 @@
 package ru.stroy1click.order.client.impl;
 
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatusCode;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import ru.stroy1click.order.client.NotificationClient;
 import ru.stroy1click.order.dto.OrderDto;
 import ru.stroy1click.order.exception.ServiceUnavailableException;
 import ru.stroy1click.order.util.ValidationErrorUtils;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Клиент сервиса уведомлений на WebClient и Reactor Netty. Соединения берутся из пула с keep-alive
+ * (или мультиплексируются по HTTP/2 при notification.client.http2), ожидание соединения, connect и ответ
+ * ограничены таймаутами. Запросы проходят через circuit breaker notificationClient.
+ * <p>
+ * Методы не блокируют вызывающий поток: запрос уходит при подписке, ответ обрабатывается на event loop Netty.
+ * Отправка по одному идёт параллельно, не больше notification.client.max-concurrency запросов одновременно.
+ */
 @Slf4j
 @Service
-@CircuitBreaker(name = "productClient")
 public class NotificationClientImpl implements NotificationClient {
 
-    private final RestClient restClient;
+    private static final String CIRCUIT_BREAKER = "notificationClient";
+
+    /**
+     * Ответы, по которым понятно, что сервис уведомлений не умеет принимать пачки
+     */
+    private static final Set<Integer> BATCH_REJECTED_STATUSES = Set.of(404, 405, 413, 415, 501);
+
+    /**
+     * Сколько отправлять по одному, прежде чем снова попробовать пачку
+     */
+    private static final Duration BATCH_RETRY_INTERVAL = Duration.ofMinutes(5);
+
+    private final ConnectionProvider connectionProvider;
+
+    private final WebClient webClient;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Timer singleSuccess;
+
+    private final Timer singleError;
+
+    private final Timer batchSuccess;
 
+    private final Timer batchRejected;
+
+    private final Timer batchError;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int maxConcurrency;
+
+    private volatile long batchDisabledUntil;
+
+    public NotificationClientImpl(@Value(value = "${url.notification}") String url,
+                                  WebClient.Builder webClientBuilder,
+                                  CircuitBreakerRegistry circuitBreakerRegistry,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${notification.client.connect-timeout:2s}") Duration connectTimeout,
+                                  @Value("${notification.client.read-timeout:5s}") Duration readTimeout,
+                                  @Value("${notification.client.max-connections:50}") Integer maxConnections,
+                                  @Value("${notification.client.max-concurrency:16}") Integer maxConcurrency,
+                                  @Value("${notification.client.http2:false}") Boolean http2) {
+        this.connectionProvider = ConnectionProvider.builder("notification-client")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(connectTimeout.plus(readTimeout))
+                // сервер закрывает простаивающие keep-alive соединения, не даём пулу выдать уже закрытое
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(this.connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(connectTimeout.toMillis()))
+                .responseTimeout(readTimeout);
+        if (http2) {
+            // по https версия выбирается через ALPN, без TLS - h2c по prior knowledge
+            httpClient = url.startsWith("https")
+                    ? httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    : httpClient.protocol(HttpProtocol.H2C);
+        }
 
-    public NotificationClientImpl(@Value(value = "${url.notification}") String url) {
-        this.restClient = RestClient.builder()
+        this.webClient = webClientBuilder
                 .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER);
+        this.meterRegistry = meterRegistry;
+        this.singleSuccess = timer(meterRegistry, "single", "success");
+        this.singleError = timer(meterRegistry, "single", "error");
+        this.batchSuccess = timer(meterRegistry, "batch", "success");
+        this.batchRejected = timer(meterRegistry, "batch", "rejected");
+        this.batchError = timer(meterRegistry, "batch", "error");
+        this.maxConcurrency = maxConcurrency;
     }
 
     @Override
-    @Async("asyncTaskExecutor")
-    public void sendOrderNotification(OrderDto orderDto) {
+    public Mono<Void> sendOrderNotification(OrderDto orderDto) {
         log.info("sendOrderNotification {}", orderDto);
-        try {
-            this.restClient.post()
-                    .body(orderDto)
+        return send(orderDto);
+    }
+
+    @Override
+    public Mono<Void> sendOrderNotifications(List<OrderDto> orderDtos) {
+        log.info("sendOrderNotifications {}", orderDtos.size());
+        if (orderDtos.isEmpty()) return Mono.empty();
+
+        // режим выбирается при подписке: к этому моменту пачки могли уже отключить
+        return Mono.defer(() -> System.currentTimeMillis() < this.batchDisabledUntil
+                        ? Mono.just(false)
+                        : sendBatch(orderDtos))
+                .flatMap(accepted -> accepted
+                        ? Mono.<Void>empty()
+                        : Flux.fromIterable(orderDtos).flatMap(this::send, this.maxConcurrency).then());
+    }
+
+    @PreDestroy
+    public void close() {
+        this.connectionProvider.dispose();
+    }
+
+    private Mono<Void> send(OrderDto orderDto) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(this.meterRegistry);
+            return this.webClient.post()
+                    .bodyValue(orderDto)
                     .retrieve()
-                    .onStatus(HttpStatusCode::isError,(request, response) -> {
-                        ValidationErrorUtils.validateStatus(response);
+                    .onStatus(HttpStatusCode::isError, ValidationErrorUtils::toException)
+                    .toBodilessEntity()
+                    .then()
+                    .transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker))
+                    .onErrorMap(WebClientRequestException.class, this::unavailable)
+                    .doOnSuccess(ignored -> sample.stop(this.singleSuccess))
+                    .doOnError(e -> sample.stop(this.singleError));
+        });
+    }
+
+    /**
+     * @return false - если сервис уведомлений отклонил пачку и нужно отправлять по одному
+     */
+    private Mono<Boolean> sendBatch(List<OrderDto> orderDtos) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(this.meterRegistry);
+            return this.webClient.post()
+                    .uri("/batch")
+                    .bodyValue(orderDtos)
+                    .exchangeToMono(response -> {
+                        if (BATCH_REJECTED_STATUSES.contains(response.statusCode().value())) {
+                            return response.releaseBody().thenReturn(false);
+                        }
+                        if (response.statusCode().isError()) {
+                            return ValidationErrorUtils.toException(response).flatMap(Mono::<Boolean>error);
+                        }
+                        return response.releaseBody().thenReturn(true);
                     })
-                    .body(Void.class);
-        } catch (ResourceAccessException e) {
-            log.error("sendOrderNotification error ", e);
-            throw new ServiceUnavailableException();
-        }
+                    .transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker))
+                    .onErrorMap(WebClientRequestException.class, this::unavailable)
+                    .doOnSuccess(accepted -> {
+                        if (accepted) {
+                            sample.stop(this.batchSuccess);
+                            return;
+                        }
+                        sample.stop(this.batchRejected);
+                        log.warn("sendOrderNotifications: batch rejected, falling back to single sends");
+                        this.batchDisabledUntil = System.currentTimeMillis() + BATCH_RETRY_INTERVAL.toMillis();
+                    })
+                    .doOnError(e -> sample.stop(this.batchError));
+        });
+    }
+
+    /**
+     * Сервис не ответил: нет соединения, свободного соединения в пуле или ответа за read-timeout
+     */
+    private ServiceUnavailableException unavailable(WebClientRequestException e) {
+        log.error("notification service request error ", e);
+        return new ServiceUnavailableException();
+    }
+
+    /**
+     * @param type    single или batch
+     * @param outcome success, rejected (сервис не принимает пачки) или error
+     */
+    private static Timer timer(MeterRegistry meterRegistry, String type, String outcome) {
+        return Timer.builder("notification.client.requests")
+                .description("Время запросов к сервису уведомлений")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 }
@@ -1,23 +1,110 @@
 package ru.stroy1click.order.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import ru.stroy1click.order.exception.ServiceUnavailableException;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
+/**
+ * asyncTaskExecutor выполняет @Async-задачи и асинхронные ответы MVC (StreamingResponseBody).
+ * При spring.threads.virtual.enabled=true (Java 21) вместо фиксированного пула каждая задача получает
+ * свой виртуальный поток, а Tomcat обрабатывает запросы на виртуальных потоках средствами Spring Boot.
+ * Выгрузки по HTTP идут на отдельном exportTaskExecutor: каждая занимает поток на минуты.
+ */
 @Configuration
-public class AsyncConfig {
+public class AsyncConfig implements WebMvcConfigurer {
+
+    private final AsyncTaskExecutor asyncTaskExecutor;
+
+    public AsyncConfig(@Qualifier("asyncTaskExecutor") AsyncTaskExecutor asyncTaskExecutor) {
+        this.asyncTaskExecutor = asyncTaskExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(this.asyncTaskExecutor);
+    }
+
+    /**
+     * Без очереди сверх export.queue-capacity: лишняя выгрузка сразу получает 503, а не ждёт пул часами.
+     */
+    @Bean("exportTaskExecutor")
+    public AsyncTaskExecutor exportTaskExecutor(MeterRegistry meterRegistry,
+                                                @Value("${export.max-concurrent:4}") Integer maxConcurrent,
+                                                @Value("${export.queue-capacity:4}") Integer queueCapacity){
+        Counter rejected = Counter.builder("executor.rejected")
+                .description("Задачи, отклонённые из-за переполненной очереди")
+                .tag("name", "export")
+                .register(meterRegistry);
 
-    @Bean("asyncTaskExecutor")
-    public Executor asyncTaskExecutor(){
         ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
-        taskExecutor.setCorePoolSize(4);
-        taskExecutor.setQueueCapacity(150);
-        taskExecutor.setMaxPoolSize(5);
-        taskExecutor.setThreadNamePrefix("AsyncTaskThread-");
+        taskExecutor.setCorePoolSize(maxConcurrent);
+        taskExecutor.setMaxPoolSize(maxConcurrent);
+        taskExecutor.setQueueCapacity(queueCapacity);
+        taskExecutor.setThreadNamePrefix("ExportTaskThread-");
+        taskExecutor.setRejectedExecutionHandler((task, executor) -> {
+            rejected.increment();
+            throw new ServiceUnavailableException();
+        });
         taskExecutor.initialize();
         return taskExecutor;
     }
 
+    @Configuration
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "false", matchIfMissing = true)
+    static class PlatformThreadsConfig {
+
+        /**
+         * Размер очереди и активные потоки Spring Boot публикует сам (executor.* с тегом name=async),
+         * отказы при переполненной очереди считаются здесь.
+         */
+        @Bean("asyncTaskExecutor")
+        public AsyncTaskExecutor asyncTaskExecutor(MeterRegistry meterRegistry){
+            Counter rejected = Counter.builder("executor.rejected")
+                    .description("Задачи, отклонённые из-за переполненной очереди")
+                    .tag("name", "async")
+                    .register(meterRegistry);
+            ThreadPoolExecutor.AbortPolicy abortPolicy = new ThreadPoolExecutor.AbortPolicy();
+
+            ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+            taskExecutor.setCorePoolSize(4);
+            taskExecutor.setQueueCapacity(150);
+            taskExecutor.setMaxPoolSize(5);
+            taskExecutor.setThreadNamePrefix("AsyncTaskThread-");
+            taskExecutor.setRejectedExecutionHandler((task, executor) -> {
+                rejected.increment();
+                abortPolicy.rejectedExecution(task, executor);
+            });
+            taskExecutor.initialize();
+            return taskExecutor;
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    static class VirtualThreadsConfig {
+
+        /**
+         * Очереди нет, но число одновременных задач ограничено, чтобы не перегрузить базу и внешние сервисы.
+         */
+        @Bean("asyncTaskExecutor")
+        public AsyncTaskExecutor asyncTaskExecutor(@Value("${async.virtual.concurrency-limit:200}")
+                                                   Integer concurrencyLimit){
+            SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("AsyncTaskVirtualThread-");
+            taskExecutor.setVirtualThreads(true);
+            taskExecutor.setConcurrencyLimit(concurrencyLimit);
+            return taskExecutor;
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package ru.stroy1click.order.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Отключается только в тренировочном запуске CDS (профиль cds): кэширующий interceptor на старте
+ * получает CacheManager, а тот подписывается на топик инвалидации в Redis.
+ */
+@Configuration
+@EnableCaching
+@ConditionalOnProperty(name = "cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingConfig {
+}
@@ -0,0 +1,19 @@
+package ru.stroy1click.order.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Включает @Timed. Метрики отдаются на /actuator/prometheus, в тегах только имена методов,
+ * кэшей и исходы - без id заказов и пользователей, чтобы число временных рядов не росло.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.stroy1click.order.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.stroy1click.order.ratelimit.RateLimitInterceptor;
+
+@Configuration
+@RequiredArgsConstructor
+public class RateLimitConfig implements WebMvcConfigurer {
+
+    private final RateLimitInterceptor rateLimitInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this.rateLimitInterceptor)
+                .addPathPatterns("/api/v1/orders/**", "/api/v1/orders");
+    }
+}
@@ -1,5 +1,6 @@
 package ru.stroy1click.order.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
@@ -9,7 +10,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import ru.stroy1click.order.cache.OrderCacheCodec;
+import ru.stroy1click.order.cache.TwoLevelCacheManager;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,6 +32,15 @@ public class RedissonConfig {
     @Value(value = "${redisson.password}")
     private String password;
 
+    @Value("${cache.local.maximum-size:10000}")
+    private Long localCacheMaximumSize;
+
+    @Value("${cache.local.expire-after-write:60s}")
+    private Duration localCacheExpireAfterWrite;
+
+    @Value("${cache.early-refresh.beta:1.0}")
+    private Double earlyRefreshBeta;
+
     @Bean(destroyMethod = "shutdown")
     public RedissonClient redissonClient() {
         Config config = new Config();
@@ -41,16 +54,38 @@ public class RedissonConfig {
         return Redisson.create(config);
     }
 
+    /**
+     * Компактный формат для OrderDto в Redis, остальное - стандартным codec-ом Redisson.
+     */
     @Bean
-    public CacheManager cacheManager(RedissonClient redissonClient) {
+    public OrderCacheCodec orderCacheCodec(RedissonClient redissonClient) {
+        return new OrderCacheCodec(redissonClient.getConfig().getCodec());
+    }
+
+    @Bean
+    public CacheManager cacheManager(RedissonClient redissonClient, MeterRegistry meterRegistry,
+                                     OrderCacheCodec orderCacheCodec) {
         Map<String, CacheConfig> config = new HashMap<>();
 
         long oneDayMillis = 24 * 60 * 60 * 1000L; // 1 день
 
         config.put("order", new CacheConfig(oneDayMillis, 0));
-        config.put("allOrders", new CacheConfig(oneDayMillis, 0));
         config.put("ordersByUserId", new CacheConfig(oneDayMillis, 0));
+        config.put("ordersByUserIdFirstPage", new CacheConfig(oneDayMillis, 0));
+        config.put("orderVersion", new CacheConfig(oneDayMillis, 0));
+        config.put("userOrdersFingerprint", new CacheConfig(oneDayMillis, 0));
+
+        Map<String, Duration> timeToLive = new HashMap<>();
+        config.forEach((name, cacheConfig) -> timeToLive.put(name, Duration.ofMillis(cacheConfig.getTTL())));
 
-        return new RedissonSpringCacheManager(redissonClient, config);
+        return new TwoLevelCacheManager(
+                new RedissonSpringCacheManager(redissonClient, config, orderCacheCodec),
+                redissonClient,
+                meterRegistry,
+                this.localCacheMaximumSize,
+                this.localCacheExpireAfterWrite,
+                timeToLive,
+                this.earlyRefreshBeta
+        );
     }
 }
@@ -0,0 +1,15 @@
+package ru.stroy1click.order.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Отключается только в тренировочном запуске CDS (профиль cds): задачи по расписанию
+ * создаются на старте даже при ленивой инициализации, а outbox без базы не поднять.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
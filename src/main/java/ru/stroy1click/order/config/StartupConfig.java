@@ -0,0 +1,46 @@
+package ru.stroy1click.order.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+
+/**
+ * При spring.main.lazy-initialization=true бины создаются при первом обращении, кроме инфраструктуры:
+ * пулы соединений, миграции, Hibernate и Redis поднимаются на старте, чтобы недоступная база или Redis
+ * валили запуск, а не первый запрос, а тяжёлая сборка метамодели Hibernate не попадала в его время.
+ * <p>
+ * startup.eager-infrastructure=false делает ленивой и инфраструктуру - только для тренировочного запуска
+ * CDS при сборке образа, где нет ни базы, ни Redis (профиль cds).
+ */
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Свойство читается при старте, а не через @ConditionalOnProperty: с Spring AOT условия фиксируются при сборке.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerInfrastructure(Environment environment) {
+        boolean eager = environment.getProperty("startup.eager-infrastructure", Boolean.class, true);
+        LazyInitializationExcludeFilter infrastructure = LazyInitializationExcludeFilter.forBeanTypes(
+                DataSource.class,
+                Flyway.class,
+                FlywayMigrationInitializer.class,
+                EntityManagerFactory.class,
+                // entityManagerFactory объявлен как FactoryBean, фильтр видит тип фабрики
+                AbstractEntityManagerFactoryBean.class,
+                RedissonClient.class,
+                CacheManager.class
+        );
+        return (beanName, beanDefinition, beanType) ->
+                eager && infrastructure.isExcluded(beanName, beanDefinition, beanType);
+    }
+}
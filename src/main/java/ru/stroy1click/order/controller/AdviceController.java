@@ -1,16 +1,20 @@
 package ru.stroy1click.order.controller;
 
 import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
-import io.github.resilience4j.ratelimiter.RequestNotPermitted;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.MessageSource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.stroy1click.order.exception.ConflictException;
 import ru.stroy1click.order.exception.NotFoundException;
+import ru.stroy1click.order.exception.PreconditionRequiredException;
 import ru.stroy1click.order.exception.ServiceErrorResponseException;
 import ru.stroy1click.order.exception.ServiceUnavailableException;
+import ru.stroy1click.order.exception.TooManyRequestsException;
 import ru.stroy1click.order.exception.ValidationException;
 
 import java.util.Locale;
@@ -47,11 +51,35 @@ public class AdviceController {
         return problemDetail;
     }
 
-    @ExceptionHandler(RequestNotPermitted.class)
-    public ProblemDetail handleException(RequestNotPermitted exception){
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.TOO_MANY_REQUESTS, exception.getMessage()
+    @ExceptionHandler(ConflictException.class)
+    public ProblemDetail problemDetail(ConflictException exception){
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, exception.getMessage());
+        problemDetail.setTitle(
+                this.messageSource.getMessage(
+                        "error.title.conflict",
+                        null,
+                        Locale.getDefault()
+                )
         );
+        return problemDetail;
+    }
+
+    @ExceptionHandler(PreconditionRequiredException.class)
+    public ProblemDetail problemDetail(PreconditionRequiredException exception){
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.PRECONDITION_REQUIRED, exception.getMessage());
+        problemDetail.setTitle(
+                this.messageSource.getMessage(
+                        "error.title.precondition_required",
+                        null,
+                        Locale.getDefault()
+                )
+        );
+        return problemDetail;
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ProblemDetail> handleException(TooManyRequestsException exception){
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.TOO_MANY_REQUESTS);
         problemDetail.setTitle(
                 this.messageSource.getMessage(
                         "error.title.too_many_requests",
@@ -66,7 +94,9 @@ public class AdviceController {
                         Locale.getDefault()
                 )
         );
-        return problemDetail;
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(problemDetail);
     }
 
     @ExceptionHandler(ServiceUnavailableException.class)
@@ -1,85 +1,281 @@
 package ru.stroy1click.order.controller;
 
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.stroy1click.order.dto.ExportFormat;
+import ru.stroy1click.order.dto.OrderBatchResultDto;
 import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderExportProgressDto;
+import ru.stroy1click.order.dto.OrderInStatusDto;
+import ru.stroy1click.order.dto.OrderPageDto;
+import ru.stroy1click.order.dto.OrderPatchDto;
+import ru.stroy1click.order.dto.OrderStatsDto;
+import ru.stroy1click.order.dto.OrderStatusEventDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.exception.PreconditionRequiredException;
 import ru.stroy1click.order.exception.ValidationException;
+import ru.stroy1click.order.idempotency.OrderIdempotencyStore;
+import ru.stroy1click.order.service.OrderExportService;
 import ru.stroy1click.order.service.OrderService;
+import ru.stroy1click.order.service.OrderStatsService;
+import ru.stroy1click.order.service.OrderStatusHistoryService;
+import ru.stroy1click.order.util.ETagUtils;
 import ru.stroy1click.order.util.ValidationErrorUtils;
 
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/v1/orders")
-@RequiredArgsConstructor
 @Tag(name = "Order Controller", description = "Взаимодействие с заказами")
-@RateLimiter(name = "orderLimiter")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final MessageSource messageSource;
 
     private final OrderService orderService;
 
+    private final OrderStatsService orderStatsService;
+
+    private final OrderStatusHistoryService orderStatusHistoryService;
+
+    private final OrderExportService orderExportService;
+
+    private final OrderIdempotencyStore orderIdempotencyStore;
+
+    private final AsyncTaskExecutor exportTaskExecutor;
+
+    private final Duration exportTimeout;
+
+    public OrderController(MessageSource messageSource,
+                           OrderService orderService,
+                           OrderStatsService orderStatsService,
+                           OrderStatusHistoryService orderStatusHistoryService,
+                           OrderExportService orderExportService,
+                           OrderIdempotencyStore orderIdempotencyStore,
+                           @Qualifier("exportTaskExecutor") AsyncTaskExecutor exportTaskExecutor,
+                           @Value("${export.timeout:2h}") Duration exportTimeout) {
+        this.messageSource = messageSource;
+        this.orderService = orderService;
+        this.orderStatsService = orderStatsService;
+        this.orderStatusHistoryService = orderStatusHistoryService;
+        this.orderExportService = orderExportService;
+        this.orderIdempotencyStore = orderIdempotencyStore;
+        this.exportTaskExecutor = exportTaskExecutor;
+        this.exportTimeout = exportTimeout;
+    }
+
+    /**
+     * С If-None-Match сначала сверяется только версия заказа: если она не изменилась, ответ 304
+     * отдаётся без загрузки позиций и сериализации тела.
+     */
     @GetMapping("/{id}")
     @Operation(summary = "Получение заказа")
-    public OrderDto get(@PathVariable("id") Long id){
-        return this.orderService.get(id);
+    public ResponseEntity<OrderDto> get(@PathVariable("id") Long id, WebRequest webRequest){
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(ETagUtils.order(id, this.orderService.getVersion(id)))) {
+            return null;
+        }
+
+        OrderDto orderDto = this.orderService.get(id);
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.order(orderDto))
+                .body(orderDto);
     }
 
     @GetMapping
-    @Operation(summary = "Получить все заказы")
-    public List<OrderDto> getAll(){
-        return this.orderService.getAll();
+    @Operation(summary = "Получить страницу заказов")
+    public OrderPageDto getAll(@RequestParam(value = "cursor", required = false) String cursor,
+                               @RequestParam(value = "size", defaultValue = "50") Integer size,
+                               @RequestParam(value = "status", required = false) OrderStatus status,
+                               @RequestParam(value = "from", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                               @RequestParam(value = "to", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to){
+        return this.orderService.getAll(cursor, size, status, from, to);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Потоковая выгрузка всех заказов в формате NDJSON")
+    public WebAsyncTask<Void> stream(@RequestParam(value = "status", required = false) OrderStatus status,
+                                     @RequestParam(value = "from", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                     @RequestParam(value = "to", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                     HttpServletResponse response){
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        return exportTask(response, outputStream -> this.orderExportService.stream(status, from, to, outputStream));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Выгрузка заказов с позициями в gzip-файл CSV или NDJSON")
+    public WebAsyncTask<Void> export(@RequestParam(value = "format", defaultValue = "CSV") ExportFormat format,
+                                     @RequestParam(value = "status", required = false) OrderStatus status,
+                                     @RequestParam(value = "from", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                     @RequestParam(value = "to", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                     HttpServletResponse response){
+        response.setContentType("application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(format.getFileName()).build().toString());
+        return exportTask(response, outputStream -> this.orderExportService.export(format, status, from, to, outputStream));
+    }
+
+    /**
+     * Выгрузка пишется прямо в ответ на exportTaskExecutor со своим таймаутом export.timeout:
+     * StreamingResponseBody шёл бы на общий asyncTaskExecutor и обрывался бы async-таймаутом MVC по умолчанию.
+     */
+    private WebAsyncTask<Void> exportTask(HttpServletResponse response, StreamingResponseBody body){
+        return new WebAsyncTask<>(this.exportTimeout.toMillis(), this.exportTaskExecutor, () -> {
+            body.writeTo(response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
+    }
+
+    @GetMapping("/export/running")
+    @Operation(summary = "Выгрузки, которые выполняются сейчас, и их прогресс")
+    public List<OrderExportProgressDto> getRunningExports(){
+        return this.orderExportService.getRunning();
+    }
+
+    @GetMapping("/{id}/history")
+    @Operation(summary = "История статусов заказа, от первого к текущему")
+    public List<OrderStatusEventDto> getHistory(@PathVariable("id") Long id){
+        return this.orderStatusHistoryService.getHistory(id);
+    }
+
+    @GetMapping("/in-status")
+    @Operation(summary = "Заказы, которые находятся в статусе не позже чем с указанного момента")
+    public List<OrderInStatusDto> getInStatusSince(@RequestParam("status") OrderStatus status,
+                                                   @RequestParam(value = "since", required = false)
+                                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                                                   @RequestParam(value = "size", defaultValue = "100") Integer size){
+        return this.orderStatusHistoryService.getInStatusSince(status, since, size);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Количество заказов по статусам, по статусам для пользователя и по дням")
+    public OrderStatsDto getStats(@RequestParam(value = "userId", required = false) Long userId,
+                                  @RequestParam(value = "from", required = false)
+                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                  @RequestParam(value = "to", required = false)
+                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return this.orderStatsService.get(userId, from, to);
     }
 
     @GetMapping("/user")
     @Operation(summary = "Получение всех заказов пользователя")
-    public List<OrderDto> getByUserId(@RequestParam("userId") Long userId){
-        return this.orderService.getByUserId(userId);
+    public ResponseEntity<List<OrderDto>> getByUserId(@RequestParam("userId") Long userId, WebRequest webRequest){
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(
+                        ETagUtils.userOrders(this.orderService.getUserOrdersFingerprint(userId))
+                )) {
+            return null;
+        }
+
+        List<OrderDto> orderDtos = this.orderService.getByUserId(userId);
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.userOrders(orderDtos))
+                .body(orderDtos);
     }
 
+    @GetMapping("/user/page")
+    @Operation(summary = "Страница заказов пользователя, от новых к старым")
+    public OrderPageDto getPageByUserId(@RequestParam("userId") Long userId,
+                                        @RequestParam(value = "cursor", required = false) String cursor,
+                                        @RequestParam(value = "size", defaultValue = "50") Integer size,
+                                        @RequestParam(value = "status", required = false) OrderStatus status,
+                                        @RequestParam(value = "from", required = false)
+                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                        @RequestParam(value = "to", required = false)
+                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to){
+        return this.orderService.getPageByUserId(userId, cursor, size, status, from, to);
+    }
+
+    /**
+     * С заголовком Idempotency-Key повтор запроса получает тот же 201 с заказом из первого ответа
+     * и заголовком Idempotent-Replayed, новый заказ не создаётся.
+     */
     @PostMapping
     @Operation(summary = "Создание заказа")
-    public ResponseEntity<OrderDto> create(@RequestBody @Valid OrderDto orderDto,
+    public ResponseEntity<OrderDto> create(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                         @RequestBody @Valid OrderDto orderDto,
                                          BindingResult bindingResult){
         if(bindingResult.hasFieldErrors()) throw new ValidationException(ValidationErrorUtils.collectErrorsToString(
                 bindingResult.getFieldErrors()
         ));
 
-        OrderDto createdOrder = this.orderService.create(orderDto);
+        if (idempotencyKey == null) {
+            OrderDto createdOrder = this.orderService.create(orderDto);
+            return ResponseEntity
+                    .created(URI.create("/api/v1/orders/" + createdOrder.getId()))
+                    .body(createdOrder);
+        }
 
+        OrderIdempotencyStore.Result result = this.orderIdempotencyStore.create(
+                idempotencyKey, orderDto, () -> this.orderService.create(orderDto)
+        );
         return ResponseEntity
-                .created(URI.create("/api/v1/orders/" + createdOrder.getId()))
-                .body(createdOrder);
+                .created(URI.create("/api/v1/orders/" + result.order().getId()))
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(result.replayed()))
+                .body(result.order());
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Пакетное создание заказов")
+    public List<OrderBatchResultDto> createBatch(@RequestBody List<OrderDto> orderDtos){
+        return this.orderService.createBatch(orderDtos);
     }
 
+    /**
+     * Ожидаемая версия заказа обязательна: заголовок If-Match с ETag из GET или поле version.
+     * Без неё - 428, с устаревшей версией - 409. В ответе ETag новой версии для следующего изменения.
+     */
     @PatchMapping("/{id}")
     @Operation(summary = "Обновление заказа")
     public ResponseEntity<String> update(@PathVariable("id") Long id,
-                                         @RequestBody @Valid OrderDto orderDto,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                         @RequestBody @Valid OrderPatchDto orderPatchDto,
                                          BindingResult bindingResult){
         if(bindingResult.hasFieldErrors()) throw new ValidationException(ValidationErrorUtils.collectErrorsToString(
                 bindingResult.getFieldErrors()
         ));
 
-        this.orderService.update(id, orderDto);
+        orderPatchDto.setVersion(expectedVersion(id, ifMatch, orderPatchDto.getVersion()));
+        Long version = this.orderService.update(id, orderPatchDto);
 
-        return ResponseEntity.ok(
-                this.messageSource.getMessage(
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.order(id, version))
+                .body(this.messageSource.getMessage(
                         "info.order.update",
                         null,
                         Locale.getDefault()
-                )
-        );
+                ));
     }
 
     @DeleteMapping("/{id}")
@@ -96,4 +292,22 @@ public class OrderController {
         );
     }
 
+    private Long expectedVersion(Long id, String ifMatch, Long bodyVersion) {
+        if (ifMatch == null) {
+            if (bodyVersion == null) throw new PreconditionRequiredException(
+                    this.messageSource.getMessage("error.order.version_required", null, Locale.getDefault())
+            );
+            return bodyVersion;
+        }
+
+        Long version = ETagUtils.orderVersion(id, ifMatch);
+        if (version == null) throw new ValidationException(
+                this.messageSource.getMessage("error.order.if_match_invalid", null, Locale.getDefault())
+        );
+        if (bodyVersion != null && !bodyVersion.equals(version)) throw new ValidationException(
+                this.messageSource.getMessage("error.order.version_mismatch", null, Locale.getDefault())
+        );
+        return version;
+    }
+
 }
@@ -0,0 +1,84 @@
+package ru.stroy1click.order.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Отправляет read-only транзакции на реплики по кругу, всё остальное - на primary.
+ * Решение принимается при первом обращении к соединению, поэтому DataSource должен быть обёрнут
+ * в LazyConnectionDataSourceProxy: иначе соединение берётся до того, как транзакция помечена read-only.
+ */
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final String PRIMARY = "primary";
+
+    private static final String REPLICA_PREFIX = "replica-";
+
+    private final DataSource primary;
+
+    private final List<HikariDataSource> replicas;
+
+    private final List<String> replicaKeys;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.replicaKeys = new ArrayList<>(replicas.size());
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = REPLICA_PREFIX + i;
+            this.replicaKeys.add(key);
+            targets.put(key, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (this.replicaKeys.isEmpty()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || ReadYourWrites.isPrimaryRequired()) {
+            return PRIMARY;
+        }
+        return this.replicaKeys.get(Math.floorMod(this.next.getAndIncrement(), this.replicaKeys.size()));
+    }
+
+    /**
+     * Недоступная реплика не должна ронять чтение - в этом случае соединение берётся с primary.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target == this.primary) return target.getConnection();
+
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            log.warn("replica is unavailable, falling back to primary: {}", e.getMessage());
+            return this.primary.getConnection();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.replicas.forEach(HikariDataSource::close);
+    }
+}
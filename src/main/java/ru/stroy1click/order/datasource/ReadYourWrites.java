@@ -0,0 +1,81 @@
+package ru.stroy1click.order.datasource;
+
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes поверх асинхронных реплик: после записи ключ (заказ, пользователь) на время окна
+ * помечается в Redis, и чтения по нему идут на primary. Метка общая для всех инстансов, поэтому
+ * промах кэша на соседнем инстансе тоже не положит в общий кэш устаревшие данные с отстающей реплики.
+ * Окно должно быть заметно больше обычного лага репликации.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final String KEY_PREFIX = "order-service:recent-write:";
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final RedissonClient redissonClient;
+
+    private final long windowMillis;
+
+    private final boolean enabled;
+
+    public ReadYourWrites(RedissonClient redissonClient,
+                          @Value("${datasource.read-your-writes.window:5s}") Duration window,
+                          @Value("${datasource.replica.urls:}") String replicaUrls) {
+        this.redissonClient = redissonClient;
+        this.windowMillis = window.toMillis();
+        // без реплик все чтения и так идут на primary, ходить в Redis незачем
+        this.enabled = this.windowMillis > 0 && !replicaUrls.isBlank();
+    }
+
+    public static String orderKey(Long id) {
+        return "order:" + id;
+    }
+
+    public static String userKey(Long userId) {
+        return "user:" + userId;
+    }
+
+    public void written(Collection<String> keys) {
+        if (!this.enabled || keys.isEmpty()) return;
+
+        RBatch batch = this.redissonClient.createBatch();
+        for (String key : keys) {
+            batch.getBucket(KEY_PREFIX + key, StringCodec.INSTANCE)
+                    .setAsync("1", this.windowMillis, TimeUnit.MILLISECONDS);
+        }
+        batch.execute();
+    }
+
+    /**
+     * Выполняет чтение на primary, если по ключу недавно писали, иначе - как обычно (на реплике).
+     */
+    public <T> T read(String key, Supplier<T> reader) {
+        if (!this.enabled || PRIMARY_REQUIRED.get() != null
+                || !this.redissonClient.getBucket(KEY_PREFIX + key, StringCodec.INSTANCE).isExists()) {
+            return reader.get();
+        }
+
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return reader.get();
+        } finally {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+}
@@ -0,0 +1,24 @@
+package ru.stroy1click.order.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Формат выгрузки заказов. Файл всегда сжимается gzip.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+
+    /**
+     * Одна строка на позицию заказа, заказ без позиций - одна строка с пустыми полями позиции
+     */
+    CSV("orders.csv.gz"),
+
+    /**
+     * Один заказ с позициями в JSON на строку
+     */
+    NDJSON("orders.ndjson.gz");
+
+    private final String fileName;
+}
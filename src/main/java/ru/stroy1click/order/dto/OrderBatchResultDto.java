@@ -0,0 +1,28 @@
+package ru.stroy1click.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderBatchResultDto {
+
+    /**
+     * Позиция заказа во входящем массиве
+     */
+    private Integer index;
+
+    /**
+     * Id созданного заказа, null - если заказ не создан
+     */
+    private Long id;
+
+    /**
+     * Текст ошибки валидации, null - если заказ создан
+     */
+    private String error;
+}
@@ -44,4 +44,9 @@ public class OrderDto {
     @Positive(message = "{validate.orderdto.user_id.min}")
     @NotNull(message = "{validate.orderdto.user_id.not_null}")
     private Long userId;
+
+    /**
+     * Версия заказа, растёт при каждом изменении. PATCH принимает её как ожидаемую версию.
+     */
+    private Long version;
 }
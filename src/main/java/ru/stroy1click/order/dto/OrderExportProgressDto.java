@@ -0,0 +1,34 @@
+package ru.stroy1click.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Состояние выгрузки, которая выполняется прямо сейчас
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderExportProgressDto {
+
+    private String id;
+
+    private ExportFormat format;
+
+    private LocalDateTime startedAt;
+
+    /**
+     * Сколько заказов уже записано
+     */
+    private Long orders;
+
+    /**
+     * Сколько строк уже записано, без заголовка CSV
+     */
+    private Long rows;
+}
@@ -0,0 +1,27 @@
+package ru.stroy1click.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Заказ, который находится в запрошенном статусе, без позиций и прочих полей
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderInStatusDto {
+
+    private Long orderId;
+
+    private Long userId;
+
+    /**
+     * С какого момента заказ в этом статусе
+     */
+    private LocalDateTime statusChangedAt;
+}
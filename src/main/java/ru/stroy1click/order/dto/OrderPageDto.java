@@ -0,0 +1,22 @@
+package ru.stroy1click.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderPageDto {
+
+    private List<OrderDto> orders;
+
+    /**
+     * Курсор для запроса следующей страницы, null - если страница последняя
+     */
+    private String nextCursor;
+}
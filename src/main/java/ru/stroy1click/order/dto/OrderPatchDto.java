@@ -0,0 +1,35 @@
+package ru.stroy1click.order.dto;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.validator.constraints.Length;
+import ru.stroy1click.order.entity.OrderStatus;
+
+/**
+ * Тело PATCH /orders/{id}: меняются только переданные поля, null - оставить как есть.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderPatchDto {
+
+    @Length(max = 10_000, message = "{validate.order_patch_dto.notes.length}")
+    private String notes;
+
+    private OrderStatus orderStatus;
+
+    @Pattern(regexp = "^(\\+7|8)\\d{10}$", message = "{validate.orderdto.contact_phone.pattern}")
+    private String contactPhone;
+
+    /**
+     * Версия заказа, полученная при чтении. Можно передать вместо неё заголовок If-Match с ETag заказа.
+     * Обновление проходит, только если заказ с тех пор не менялся, иначе 409.
+     */
+    @PositiveOrZero(message = "{validate.order_patch_dto.version.min}")
+    private Long version;
+}
@@ -0,0 +1,32 @@
+package ru.stroy1click.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderStatsDto {
+
+    /**
+     * Количество заказов по статусам, статусы без заказов приходят с нулём
+     */
+    private Map<OrderStatus, Long> byStatus;
+
+    /**
+     * Количество заказов пользователя по статусам, null - если userId не передан
+     */
+    private Map<OrderStatus, Long> byUserStatus;
+
+    /**
+     * Количество созданных заказов по дням за запрошенный период, дни без заказов приходят с нулём
+     */
+    private Map<LocalDate, Long> byDay;
+}
@@ -0,0 +1,23 @@
+package ru.stroy1click.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderStatusEventDto {
+
+    private OrderStatus orderStatus;
+
+    /**
+     * Момент, когда заказ перешёл в этот статус
+     */
+    private LocalDateTime changedAt;
+}
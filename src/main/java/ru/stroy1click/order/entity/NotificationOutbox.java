@@ -0,0 +1,34 @@
+package ru.stroy1click.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Уведомление, ожидающее отправки. Строка удаляется только после того, как сервис уведомлений принял его.
+ */
+@Data
+@Table(schema = "ordering", name = "notification_outbox")
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_seq")
+    @SequenceGenerator(name = "notification_outbox_seq", schema = "ordering",
+            sequenceName = "notification_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * OrderDto в JSON
+     */
+    private String payload;
+
+    private LocalDateTime createdAt;
+}
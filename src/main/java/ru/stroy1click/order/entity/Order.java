@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -17,8 +18,13 @@ import java.util.List;
 @NoArgsConstructor
 public class Order {
 
+    /**
+     * Последовательность с шагом 50: Hibernate резервирует сразу пачку id и может отправлять insert-ы батчами,
+     * с IDENTITY каждый insert уходил бы отдельным запросом.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", schema = "ordering", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     private String notes;
@@ -34,10 +40,18 @@ public class Order {
 
     private Long userId;
 
+    /**
+     * Оптимистическая блокировка: параллельное изменение одного заказа не затирает чужие правки молча.
+     */
+    @Version
+    private Long version;
+
     /**
      * OrderItem существует только внутри Order и никогда не используется отдельно, так что сделал
      * cascade = ALL + orphanRemoval = true. Это удобнее и проще.
+     * BatchSize - при обходе списка заказов позиции догружаются одним IN-запросом на пачку заказов, а не по запросу на заказ.
      */
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> orderItems;
 }
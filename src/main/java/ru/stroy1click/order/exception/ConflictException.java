@@ -0,0 +1,8 @@
+package ru.stroy1click.order.exception;
+
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.stroy1click.order.exception;
+
+public class PreconditionRequiredException extends RuntimeException {
+
+    public PreconditionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.stroy1click.order.exception;
+
+import lombok.Getter;
+
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    /**
+     * Через сколько секунд можно повторить запрос, уходит в заголовок Retry-After
+     */
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(long retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,213 @@
+package ru.stroy1click.order.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.exception.ConflictException;
+import ru.stroy1click.order.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Идемпотентное создание заказа по заголовку Idempotency-Key. Первый запрос с ключом занимает его в Redis
+ * записью "в работе" (idempotency.in-flight-ttl), создаёт заказ и сохраняет результат на idempotency.ttl.
+ * Повтор с тем же ключом получает сохранённый заказ без обращения к базе, а пока первый запрос
+ * не завершился - ждёт его результата до idempotency.wait-timeout.
+ * <p>
+ * Вместе с результатом хранится хэш тела: тот же ключ с другим телом - ошибка клиента, а не повтор.
+ * Если Redis недоступен, заказ создаётся как без ключа: защита от дублей не должна останавливать создание.
+ */
+@Slf4j
+@Component
+public class OrderIdempotencyStore {
+
+    private static final String KEY_PREFIX = "order-service:idempotency:";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final long MIN_POLL_MILLIS = 20;
+
+    private static final long MAX_POLL_MILLIS = 200;
+
+    private final RedissonClient redissonClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final MessageSource messageSource;
+
+    private final Duration ttl;
+
+    private final Duration inFlightTtl;
+
+    private final Duration waitTimeout;
+
+    private final Counter created;
+
+    private final Counter replayed;
+
+    public OrderIdempotencyStore(RedissonClient redissonClient, ObjectMapper objectMapper,
+                                 MessageSource messageSource, MeterRegistry meterRegistry,
+                                 @Value("${idempotency.ttl:24h}") Duration ttl,
+                                 @Value("${idempotency.in-flight-ttl:30s}") Duration inFlightTtl,
+                                 @Value("${idempotency.wait-timeout:10s}") Duration waitTimeout) {
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.messageSource = messageSource;
+        this.ttl = ttl;
+        this.inFlightTtl = inFlightTtl;
+        this.waitTimeout = waitTimeout;
+        this.created = counter(meterRegistry, "created");
+        this.replayed = counter(meterRegistry, "replayed");
+    }
+
+    /**
+     * @param create создание заказа, вызывается не больше одного раза на ключ за время ttl
+     */
+    public Result create(String idempotencyKey, OrderDto orderDto, Supplier<OrderDto> create) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ValidationException(message("error.idempotency.key_invalid", MAX_KEY_LENGTH));
+        }
+
+        String requestHash = hash(orderDto);
+        RBucket<String> bucket = this.redissonClient.getBucket(KEY_PREFIX + idempotencyKey, StringCodec.INSTANCE);
+
+        StoredRequest stored;
+        try {
+            stored = claimOrAwait(bucket, requestHash);
+        } catch (RedisException e) {
+            log.warn("idempotency key check failed, order created without it", e);
+            return new Result(create.get(), false);
+        }
+        if (stored != null) {
+            this.replayed.increment();
+            return new Result(stored.order(), true);
+        }
+
+        OrderDto order;
+        try {
+            order = create.get();
+        } catch (RuntimeException e) {
+            // ошибка не сохраняется: повтор с тем же ключом выполнит создание заново
+            release(bucket);
+            throw e;
+        }
+
+        try {
+            bucket.set(write(new StoredRequest(requestHash, order)), this.ttl);
+        } catch (RedisException e) {
+            log.warn("failed to store idempotent response for key {}", idempotencyKey, e);
+        }
+        this.created.increment();
+        return new Result(order, false);
+    }
+
+    /**
+     * @return null - ключ занят этим запросом, иначе завершённый запрос с тем же ключом
+     */
+    private StoredRequest claimOrAwait(RBucket<String> bucket, String requestHash) {
+        String inFlight = write(new StoredRequest(requestHash, null));
+        long deadline = System.nanoTime() + this.waitTimeout.toNanos();
+        long pollMillis = MIN_POLL_MILLIS;
+
+        while (true) {
+            if (bucket.setIfAbsent(inFlight, this.inFlightTtl)) {
+                return null;
+            }
+
+            // null - первый запрос упал и освободил ключ, следующая итерация попробует занять его снова
+            String value = bucket.get();
+            if (value != null) {
+                StoredRequest stored = read(value);
+                if (!stored.requestHash().equals(requestHash)) {
+                    throw new ConflictException(message("error.idempotency.key_reused"));
+                }
+                if (stored.order() != null) {
+                    return stored;
+                }
+            }
+
+            if (System.nanoTime() - deadline > 0) {
+                throw new ConflictException(message("error.idempotency.in_progress"));
+            }
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConflictException(message("error.idempotency.in_progress"));
+            }
+            pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    private void release(RBucket<String> bucket) {
+        try {
+            bucket.delete();
+        } catch (RedisException e) {
+            log.warn("failed to release idempotency key, it expires in {}", this.inFlightTtl, e);
+        }
+    }
+
+    private String hash(OrderDto orderDto) {
+        try {
+            byte[] md5 = MessageDigest.getInstance("MD5").digest(write(orderDto).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md5);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return this.objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private StoredRequest read(String value) {
+        try {
+            return this.objectMapper.readValue(value, StoredRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String message(String code, Object... args) {
+        return this.messageSource.getMessage(code, args, Locale.getDefault());
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("order.idempotency.requests")
+                .description("Создания заказов с Idempotency-Key: выполненные и отданные повторно")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param replayed заказ создан раньше запросом с тем же ключом
+     */
+    public record Result(OrderDto order, boolean replayed) {
+    }
+
+    /**
+     * Значение ключа в Redis; order == null, пока первый запрос выполняется
+     */
+    record StoredRequest(String requestHash, OrderDto order) {
+    }
+}
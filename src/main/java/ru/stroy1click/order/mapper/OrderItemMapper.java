@@ -1,40 +1,56 @@
 package ru.stroy1click.order.mapper;
 
-import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 import ru.stroy1click.order.dto.OrderItemDto;
 import ru.stroy1click.order.entity.OrderItem;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
-@RequiredArgsConstructor
 public class OrderItemMapper implements Mappable<OrderItem, OrderItemDto>{
 
-    private final ModelMapper modelMapper;
-
     @Override
-    public OrderItem toEntity(OrderItemDto orderDto) {
-        return this.modelMapper.map(orderDto, OrderItem.class);
+    public OrderItem toEntity(OrderItemDto orderItemDto) {
+        if (orderItemDto == null) return null;
+
+        OrderItem orderItem = new OrderItem();
+        orderItem.setId(orderItemDto.getId());
+        orderItem.setProductId(orderItemDto.getProductId());
+        orderItem.setQuantity(orderItemDto.getQuantity());
+        return orderItem;
     }
 
     @Override
-    public OrderItemDto toDto(OrderItem order) {
-        return this.modelMapper.map(order, OrderItemDto.class);
+    public OrderItemDto toDto(OrderItem orderItem) {
+        if (orderItem == null) return null;
+
+        OrderItemDto orderItemDto = new OrderItemDto();
+        orderItemDto.setId(orderItem.getId());
+        orderItemDto.setProductId(orderItem.getProductId());
+        orderItemDto.setQuantity(orderItem.getQuantity());
+        return orderItemDto;
     }
 
     @Override
     public List<OrderItemDto> toDto(List<OrderItem> e) {
-        return e.stream()
-                .map(orderItem -> this.modelMapper.map(orderItem, OrderItemDto.class))
-                .toList();
+        if (e == null) return null;
+
+        List<OrderItemDto> result = new ArrayList<>(e.size());
+        for (OrderItem orderItem : e) {
+            result.add(toDto(orderItem));
+        }
+        return result;
     }
 
     public List<OrderItem> toEntity(List<OrderItemDto> e) {
-        return e.stream()
-                .map(orderItemDto -> this.modelMapper.map(orderItemDto, OrderItem.class))
-                .toList();
+        if (e == null) return null;
+
+        List<OrderItem> result = new ArrayList<>(e.size());
+        for (OrderItemDto orderItemDto : e) {
+            result.add(toEntity(orderItemDto));
+        }
+        return result;
     }
 
 }
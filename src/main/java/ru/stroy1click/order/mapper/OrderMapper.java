@@ -1,34 +1,102 @@
 package ru.stroy1click.order.mapper;
 
-import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Component;
 import ru.stroy1click.order.dto.OrderDto;
 import ru.stroy1click.order.entity.Order;
+import ru.stroy1click.order.entity.OrderItem;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Ручной маппинг вместо ModelMapper: без рефлексии, списки создаются сразу нужного размера.
+ */
 @Component
-@RequiredArgsConstructor
 public class OrderMapper implements Mappable<Order, OrderDto>{
 
-    private final ModelMapper modelMapper;
+    private final OrderItemMapper orderItemMapper;
+
+    private final DistributionSummary listRows;
+
+    private final Timer listTimer;
+
+    public OrderMapper(OrderItemMapper orderItemMapper, MeterRegistry meterRegistry) {
+        this.orderItemMapper = orderItemMapper;
+        this.listRows = DistributionSummary.builder("order.mapper.rows")
+                .description("Число заказов в одном вызове toDto(List)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.listTimer = Timer.builder("order.mapper.duration")
+                .description("Время маппинга списка заказов в OrderDto")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     @Override
     public Order toEntity(OrderDto orderDto) {
-        return this.modelMapper.map(orderDto, Order.class);
+        if (orderDto == null) return null;
+
+        Order order = new Order();
+        order.setId(orderDto.getId());
+        order.setNotes(orderDto.getNotes());
+        order.setOrderStatus(orderDto.getOrderStatus());
+        order.setCreatedAt(orderDto.getCreatedAt());
+        order.setUpdatedAt(orderDto.getUpdatedAt());
+        order.setContactPhone(orderDto.getContactPhone());
+        order.setUserId(orderDto.getUserId());
+        order.setVersion(orderDto.getVersion());
+
+        List<OrderItem> orderItems = this.orderItemMapper.toEntity(orderDto.getOrderItems());
+        if (orderItems != null) {
+            // связь двунаправленная, без order позиции сохранятся с пустым order_id
+            for (OrderItem orderItem : orderItems) {
+                orderItem.setOrder(order);
+            }
+        }
+        order.setOrderItems(orderItems);
+
+        return order;
     }
 
     @Override
     public OrderDto toDto(Order order) {
-        return this.modelMapper.map(order, OrderDto.class);
+        if (order == null) return null;
+
+        OrderDto orderDto = new OrderDto();
+        orderDto.setId(order.getId());
+        orderDto.setNotes(order.getNotes());
+        orderDto.setOrderStatus(order.getOrderStatus());
+        orderDto.setCreatedAt(order.getCreatedAt());
+        orderDto.setUpdatedAt(order.getUpdatedAt());
+        orderDto.setOrderItems(this.orderItemMapper.toDto(order.getOrderItems()));
+        orderDto.setContactPhone(order.getContactPhone());
+        orderDto.setUserId(order.getUserId());
+        orderDto.setVersion(order.getVersion());
+        return orderDto;
     }
 
     @Override
     public List<OrderDto> toDto(List<Order> e) {
-        return e.stream()
-                .map(product -> this.modelMapper.map(product, OrderDto.class))
-                .toList();
+        if (e == null) return null;
+
+        // ленивые позиции догружаются (пачками по @BatchSize) до замера: в order.mapper.duration нет времени SQL
+        for (Order order : e) {
+            Hibernate.initialize(order.getOrderItems());
+        }
+
+        long start = System.nanoTime();
+        List<OrderDto> result = new ArrayList<>(e.size());
+        for (Order order : e) {
+            result.add(toDto(order));
+        }
+        this.listTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        this.listRows.record(result.size());
+        return result;
     }
 
 }
@@ -0,0 +1,77 @@
+package ru.stroy1click.order.ratelimit;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лимит limitForPeriod запросов за limitRefreshPeriod на ключ, фиксированными окнами, как у resilience4j.
+ * Ключи разложены по STRIPES независимым таблицам со своей блокировкой: клиенты мешают друг другу,
+ * только если попали в одну полосу, и держат блокировку на время пары сравнений.
+ */
+class LocalRateLimiter {
+
+    private static final int STRIPES = 64;
+
+    /**
+     * При таком размере полосы из неё вычищаются ключи из прошлых окон
+     */
+    private static final int STRIPE_CLEANUP_SIZE = 1_024;
+
+    private final int limitForPeriod;
+
+    private final long periodNanos;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    LocalRateLimiter(int limitForPeriod, Duration limitRefreshPeriod) {
+        this.limitForPeriod = limitForPeriod;
+        this.periodNanos = limitRefreshPeriod.toNanos();
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @return 0 - запрос разрешён, иначе сколько наносекунд ждать начала следующего окна
+     */
+    long tryAcquire(String key, long nowNanos) {
+        long cycle = Math.floorDiv(nowNanos, this.periodNanos);
+        Stripe stripe = this.stripes[(key.hashCode() ^ (key.hashCode() >>> 16)) & (STRIPES - 1)];
+
+        stripe.lock.lock();
+        try {
+            if (stripe.windows.size() >= STRIPE_CLEANUP_SIZE) {
+                stripe.windows.values().removeIf(window -> window.cycle != cycle);
+            }
+
+            Window window = stripe.windows.computeIfAbsent(key, k -> new Window());
+            if (window.cycle != cycle) {
+                window.cycle = cycle;
+                window.used = 0;
+            }
+            if (window.used < this.limitForPeriod) {
+                window.used++;
+                return 0;
+            }
+            return (cycle + 1) * this.periodNanos - nowNanos;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private static class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Map<String, Window> windows = new HashMap<>();
+    }
+
+    private static class Window {
+
+        private long cycle = Long.MIN_VALUE;
+
+        private int used;
+    }
+}
@@ -0,0 +1,136 @@
+package ru.stroy1click.order.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateType;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лимиты запросов на клиента, отдельно для чтения и записи: дешёвые GET не тратят лимит записи и наоборот.
+ * Сначала проверяется локальный лимит реплики, без сетевых запросов. При rate-limit.distributed.enabled
+ * разрешённый локально запрос дополнительно проверяется в общем для реплик RRateLimiter в Redis.
+ * Если Redis недоступен, запрос пропускается: лимиты не должны останавливать сервис.
+ */
+@Slf4j
+@Component
+public class OrderRateLimiter {
+
+    private static final String KEY_PREFIX = "order-service:rate-limit:";
+
+    private static final int KEY_TTL_PERIODS = 60;
+
+    private final RedissonClient redissonClient;
+
+    private final boolean distributed;
+
+    private final Limit read;
+
+    private final Limit write;
+
+    public OrderRateLimiter(RedissonClient redissonClient, MeterRegistry meterRegistry,
+                            @Value("${rate-limit.read.limit-for-period:200}") Integer readLimitForPeriod,
+                            @Value("${rate-limit.read.limit-refresh-period:1s}") Duration readLimitRefreshPeriod,
+                            @Value("${rate-limit.write.limit-for-period:20}") Integer writeLimitForPeriod,
+                            @Value("${rate-limit.write.limit-refresh-period:1s}") Duration writeLimitRefreshPeriod,
+                            @Value("${rate-limit.distributed.enabled:false}") Boolean distributed) {
+        this.redissonClient = redissonClient;
+        this.distributed = distributed;
+        this.read = new Limit("read", readLimitForPeriod, readLimitRefreshPeriod, meterRegistry);
+        this.write = new Limit("write", writeLimitForPeriod, writeLimitRefreshPeriod, meterRegistry);
+    }
+
+    /**
+     * @param client ключ клиента: id пользователя или IP
+     * @return 0 - запрос разрешён, иначе через сколько секунд его можно повторить
+     */
+    public long tryAcquire(String client, boolean write) {
+        Limit limit = write ? this.write : this.read;
+
+        long waitNanos = limit.local.tryAcquire(client, System.nanoTime());
+        if (waitNanos == 0 && this.distributed) {
+            waitNanos = tryAcquireDistributed(limit, client);
+        }
+
+        if (waitNanos == 0) {
+            limit.allowed.increment();
+            return 0;
+        }
+        limit.rejected.increment();
+        return Math.max(1, Math.ceilDiv(waitNanos, TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    /**
+     * RRateLimiter не говорит, когда освободится разрешение, поэтому ждать предлагаем целый период.
+     * Настройки и TTL задаются один раз, когда лимитер создаётся: после истечения ключа tryAcquire
+     * падает, и лимитер создаётся заново.
+     */
+    private long tryAcquireDistributed(Limit limit, String client) {
+        RRateLimiter rateLimiter = this.redissonClient.getRateLimiter(KEY_PREFIX + limit.name + ":" + client);
+        try {
+            boolean acquired;
+            try {
+                acquired = rateLimiter.tryAcquire();
+            } catch (RedisException e) {
+                create(rateLimiter, limit);
+                acquired = rateLimiter.tryAcquire();
+            }
+            return acquired ? 0 : TimeUnit.MILLISECONDS.toNanos(limit.periodMillis);
+        } catch (RuntimeException e) {
+            log.warn("distributed rate limit check failed, request allowed", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Ключи неактивных клиентов удаляет сам Redis. TTL не продлевается запросами, поэтому он в KEY_TTL_PERIODS
+     * периодов: пересоздание, обнуляющее счётчик активного клиента, случается редко.
+     */
+    private void create(RRateLimiter rateLimiter, Limit limit) {
+        // из параллельно создающих лимитер реплик настройки задаст только первая
+        if (rateLimiter.trySetRate(RateType.OVERALL, limit.limitForPeriod, limit.periodMillis,
+                RateIntervalUnit.MILLISECONDS)) {
+            rateLimiter.expire(Duration.ofMillis(limit.periodMillis * KEY_TTL_PERIODS));
+        }
+    }
+
+    private static class Limit {
+
+        private final String name;
+
+        private final int limitForPeriod;
+
+        private final long periodMillis;
+
+        private final LocalRateLimiter local;
+
+        private final Counter allowed;
+
+        private final Counter rejected;
+
+        private Limit(String name, int limitForPeriod, Duration limitRefreshPeriod, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.limitForPeriod = limitForPeriod;
+            this.periodMillis = limitRefreshPeriod.toMillis();
+            this.local = new LocalRateLimiter(limitForPeriod, limitRefreshPeriod);
+            this.allowed = counter(meterRegistry, name, "allowed");
+            this.rejected = counter(meterRegistry, name, "rejected");
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String bucket, String result) {
+            return Counter.builder("order.rate.limit.requests")
+                    .description("Запросы, прошедшие и отклонённые лимитом на клиента")
+                    .tag("bucket", bucket)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
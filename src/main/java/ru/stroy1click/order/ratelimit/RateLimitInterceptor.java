@@ -0,0 +1,69 @@
+package ru.stroy1click.order.ratelimit;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.stroy1click.order.exception.TooManyRequestsException;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Клиент определяется по аутентифицированному пользователю запроса, а без него - по IP.
+ * Заголовок с id пользователя учитывается, только если запрос пришёл с адреса gateway из rate-limit.trusted-proxies:
+ * иначе клиент мог бы получать новый лимит, просто меняя значение заголовка.
+ * GET и HEAD расходуют лимит чтения, остальные методы - лимит записи.
+ * Лимит расходует только исходный запрос: ASYNC-диспетчеризация после выгрузки и ERROR-диспетчеризация
+ * его не проверяют, иначе выгрузка тратила бы два разрешения, а отказ приходил бы в уже отправленный ответ.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final OrderRateLimiter orderRateLimiter;
+
+    private final String userHeader;
+
+    private final Set<String> trustedProxies;
+
+    public RateLimitInterceptor(OrderRateLimiter orderRateLimiter,
+                                @Value("${rate-limit.user-header:X-User-Id}") String userHeader,
+                                @Value("${rate-limit.trusted-proxies:}") List<String> trustedProxies) {
+        this.orderRateLimiter = orderRateLimiter;
+        this.userHeader = userHeader;
+        this.trustedProxies = Set.copyOf(trustedProxies);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) return true;
+
+        boolean write = !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+
+        long retryAfterSeconds = this.orderRateLimiter.tryAcquire(client(request), write);
+        if (retryAfterSeconds > 0) {
+            throw new TooManyRequestsException(retryAfterSeconds);
+        }
+        return true;
+    }
+
+    private String client(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+
+        String remoteAddr = request.getRemoteAddr();
+        if (this.trustedProxies.contains(remoteAddr)) {
+            String userId = request.getHeader(this.userHeader);
+            if (userId != null && !userId.isBlank()) {
+                return "user:" + userId;
+            }
+        }
+        return "ip:" + remoteAddr;
+    }
+}
@@ -0,0 +1,24 @@
+package ru.stroy1click.order.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.stroy1click.order.entity.NotificationOutbox;
+
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /**
+     * SKIP LOCKED - строки, которые уже забрала другая реплика, пропускаются без ожидания.
+     */
+    @Query(value = """
+            select * from ordering.notification_outbox
+            order by id
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<NotificationOutbox> lockBatch(@Param("limit") int limit);
+}
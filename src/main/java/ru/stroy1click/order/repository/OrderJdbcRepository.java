@@ -0,0 +1,116 @@
+package ru.stroy1click.order.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Чтение заказов напрямую через JDBC-курсор, минуя persistence context и маппер.
+ * Postgres отдаёт строки порциями по FETCH_SIZE только внутри транзакции (autocommit = false),
+ * поэтому методы нужно вызывать из транзакционного сервиса.
+ */
+@Repository
+public class OrderJdbcRepository {
+
+    private static final int FETCH_SIZE = 1_000;
+
+    private static final String SELECT_ORDERS_WITH_ITEMS = """
+            select o.id, o.notes, o.order_status, o.created_at, o.updated_at, o.contact_phone, o.user_id, o.version,
+                   i.id as item_id, i.product_id, i.quantity
+            from ordering.orders o
+            left join ordering.order_items i on i.order_id = o.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Последовательно передаёт в consumer заказы вместе с позициями. В памяти одновременно держится
+     * только текущий заказ, так что потребление heap не зависит от размера таблицы.
+     */
+    public void streamAll(OrderStatus status, LocalDateTime from, LocalDateTime to, Consumer<OrderDto> consumer) {
+        StringBuilder sql = new StringBuilder(SELECT_ORDERS_WITH_ITEMS).append("where 1 = 1");
+        List<Object> args = new ArrayList<>(3);
+
+        if (status != null) {
+            sql.append(" and o.order_status = ?");
+            args.add(status.name());
+        }
+        if (from != null) {
+            sql.append(" and o.created_at >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            sql.append(" and o.created_at < ?");
+            args.add(to);
+        }
+        sql.append(" order by o.id, i.id");
+
+        OrderRowAggregator aggregator = new OrderRowAggregator(consumer);
+        this.jdbcTemplate.query(sql.toString(), aggregator::processRow, args.toArray());
+        aggregator.flush();
+    }
+
+    /**
+     * Склеивает идущие подряд строки join-а с одинаковым id заказа в один OrderDto.
+     */
+    private static class OrderRowAggregator {
+
+        private final Consumer<OrderDto> consumer;
+
+        private OrderDto current;
+
+        private OrderRowAggregator(Consumer<OrderDto> consumer) {
+            this.consumer = consumer;
+        }
+
+        private void processRow(ResultSet rs) throws SQLException {
+            long orderId = rs.getLong("id");
+
+            if (this.current == null || this.current.getId() != orderId) {
+                flush();
+                this.current = OrderDto.builder()
+                        .id(orderId)
+                        .notes(rs.getString("notes"))
+                        .orderStatus(OrderStatus.valueOf(rs.getString("order_status")))
+                        .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                        .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+                        .contactPhone(rs.getString("contact_phone"))
+                        .userId(rs.getLong("user_id"))
+                        .version(rs.getLong("version"))
+                        .orderItems(new ArrayList<>())
+                        .build();
+            }
+
+            long itemId = rs.getLong("item_id");
+            if (!rs.wasNull()) {
+                this.current.getOrderItems().add(OrderItemDto.builder()
+                        .id(itemId)
+                        .productId(rs.getInt("product_id"))
+                        .quantity(rs.getInt("quantity"))
+                        .build());
+            }
+        }
+
+        private void flush() {
+            if (this.current != null) {
+                this.consumer.accept(this.current);
+                this.current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.stroy1click.order.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+
+/**
+ * Помесячные партиции ordering.orders (см. V5__orders_partitioning.sql). Запросы должны идти в транзакции
+ * на primary: блокировка держится до её конца.
+ */
+@Repository
+public class OrderPartitionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderPartitionRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * false, если миграция V5 применялась без orders_partitioning_enabled и orders - обычная таблица.
+     */
+    public boolean isPartitioned() {
+        return Boolean.TRUE.equals(this.jdbcTemplate.queryForObject("""
+                select exists(select 1
+                              from pg_class c
+                              join pg_namespace n on n.oid = c.relnamespace
+                              where n.nspname = 'ordering' and c.relname = 'orders' and c.relkind = 'p')
+                """, Boolean.class));
+    }
+
+    /**
+     * Транзакционная advisory-блокировка: партиции создаёт один экземпляр сервиса за раз.
+     */
+    public void lock() {
+        this.jdbcTemplate.queryForObject("select pg_advisory_xact_lock(hashtext('ordering.orders partitions'))",
+                Object.class);
+    }
+
+    public boolean exists(LocalDate monthStart) {
+        return this.jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class,
+                "ordering." + name(monthStart));
+    }
+
+    /**
+     * Не сработает, если в orders_default уже лежат строки этого месяца: PostgreSQL не даёт
+     * создать партицию под диапазон, строки которого есть в партиции по умолчанию.
+     */
+    public void create(LocalDate monthStart) {
+        this.jdbcTemplate.queryForObject("select ordering.create_orders_partition(?)", Object.class, monthStart);
+    }
+
+    public static String name(LocalDate monthStart) {
+        return "orders_%04d_%02d".formatted(monthStart.getYear(), monthStart.getMonthValue());
+    }
+}
@@ -1,13 +1,111 @@
 package ru.stroy1click.order.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.stroy1click.order.entity.Order;
+import ru.stroy1click.order.entity.OrderStatus;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    /**
+     * Заказ вместе с позициями одним запросом (left join fetch).
+     */
+    @EntityGraph(attributePaths = "orderItems")
+    Optional<Order> findWithItemsById(Long id);
+
     List<Order> findByUserId(Long userId);
+
+    /**
+     * Заказы пользователя от новых к старым, keyset по (created_at, id): следующая страница начинается
+     * строго после последнего заказа предыдущей. Идёт по индексу (user_id, created_at).
+     */
+    @Query("""
+            select o from Order o
+            where o.userId = :userId
+              and (:afterCreatedAt is null
+                   or o.createdAt < :afterCreatedAt
+                   or (o.createdAt = :afterCreatedAt and o.id < :afterId))
+              and (:status is null or o.orderStatus = :status)
+              and (:from is null or o.createdAt >= :from)
+              and (:to is null or o.createdAt < :to)
+            order by o.createdAt desc, o.id desc
+            """)
+    List<Order> findPageByUserId(@Param("userId") Long userId,
+                                 @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                 @Param("afterId") Long afterId,
+                                 @Param("status") OrderStatus status,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to,
+                                 Pageable pageable);
+
+    @Query("select o.version from Order o where o.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * md5 от "id:version" заказов пользователя по возрастанию id: меняется при создании, изменении и удалении
+     * любого из них. Считается в базе, наружу уходит одна строка.
+     */
+    @Query(nativeQuery = true, value = """
+            select md5(coalesce(string_agg(id || ':' || version, ',' order by id), ''))
+            from ordering.orders
+            where user_id = :userId
+            """)
+    String findOrdersFingerprintByUserId(@Param("userId") Long userId);
+
+    /**
+     * Keyset-пагинация по id: вместо OFFSET берём заказы строго после последнего id предыдущей страницы,
+     * поэтому стоимость запроса не растёт с номером страницы.
+     */
+    @Query("""
+            select o from Order o
+            where (:afterId is null or o.id > :afterId)
+              and (:status is null or o.orderStatus = :status)
+              and (:from is null or o.createdAt >= :from)
+              and (:to is null or o.createdAt < :to)
+            order by o.id
+            """)
+    List<Order> findPage(@Param("afterId") Long afterId,
+                         @Param("status") OrderStatus status,
+                         @Param("from") LocalDateTime from,
+                         @Param("to") LocalDateTime to,
+                         Pageable pageable);
+
+    /**
+     * Частичное обновление одним запросом без загрузки сущности: меняются только notes, статус, телефон,
+     * updated_at и version. Строка обновляется, только если её version совпала с ожидаемой.
+     * Пустой результат - заказа нет или его уже изменили.
+     */
+    @Query(nativeQuery = true, value = """
+            update ordering.orders
+            set notes = coalesce(cast(:notes as varchar), notes),
+                order_status = coalesce(cast(:orderStatus as varchar), order_status),
+                contact_phone = coalesce(cast(:contactPhone as varchar), contact_phone),
+                updated_at = :updatedAt,
+                version = version + 1
+            where id = :id
+              and version = :version
+            returning user_id as "userId", version as "version"
+            """)
+    Optional<UpdatedOrder> updateFields(@Param("id") Long id,
+                                        @Param("notes") String notes,
+                                        @Param("orderStatus") String orderStatus,
+                                        @Param("contactPhone") String contactPhone,
+                                        @Param("updatedAt") LocalDateTime updatedAt,
+                                        @Param("version") Long version);
+
+    interface UpdatedOrder {
+
+        Long getUserId();
+
+        Long getVersion();
+    }
 }
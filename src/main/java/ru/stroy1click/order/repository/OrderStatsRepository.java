@@ -0,0 +1,62 @@
+package ru.stroy1click.order.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Чтение счётчиков, которые триггеры на ordering.orders поддерживают в актуальном состоянии (см. V7__order_stats.sql).
+ * Каждый запрос читает не больше нескольких десятков строк независимо от размера orders.
+ */
+@Repository
+public class OrderStatsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderStatsRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public Map<OrderStatus, Long> countByStatus() {
+        Map<OrderStatus, Long> counts = new HashMap<>();
+        this.jdbcTemplate.query(
+                "select status, sum(count) as count from ordering.order_status_counts group by status",
+                rs -> {
+                    counts.put(OrderStatus.valueOf(rs.getString("status")), rs.getLong("count"));
+                }
+        );
+        return counts;
+    }
+
+    public Map<OrderStatus, Long> countByStatusForUser(Long userId) {
+        Map<OrderStatus, Long> counts = new HashMap<>();
+        this.jdbcTemplate.query(
+                "select status, count from ordering.order_user_status_counts where user_id = ?",
+                rs -> {
+                    counts.put(OrderStatus.valueOf(rs.getString("status")), rs.getLong("count"));
+                },
+                userId
+        );
+        return counts;
+    }
+
+    /**
+     * Созданные заказы по дням в диапазоне [from, to] включительно.
+     */
+    public Map<LocalDate, Long> countByDay(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> counts = new HashMap<>();
+        this.jdbcTemplate.query(
+                "select day, sum(count) as count from ordering.order_daily_counts where day between ? and ? group by day",
+                rs -> {
+                    counts.put(rs.getObject("day", LocalDate.class), rs.getLong("count"));
+                },
+                from, to
+        );
+        return counts;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.stroy1click.order.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.stroy1click.order.dto.OrderInStatusDto;
+import ru.stroy1click.order.dto.OrderStatusEventDto;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Чтение истории статусов, которую пишут триггеры на ordering.orders (см. V8__order_status_events.sql).
+ */
+@Repository
+public class OrderStatusHistoryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderStatusHistoryRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public List<OrderStatusEventDto> findByOrderId(Long orderId) {
+        return this.jdbcTemplate.query(
+                "select order_status, changed_at from ordering.order_status_events where order_id = ? order by id",
+                (rs, rowNum) -> OrderStatusEventDto.builder()
+                        .orderStatus(OrderStatus.valueOf(rs.getString("order_status")))
+                        .changedAt(rs.getObject("changed_at", LocalDateTime.class))
+                        .build(),
+                orderId
+        );
+    }
+
+    /**
+     * Заказы, которые находятся в статусе status не позже чем с since, начиная с самых давних.
+     * Статус подставляется литералом: план с параметром не может доказать условие частичного индекса
+     * orders_status_since_idx и ушёл бы в полное сканирование. Значения берутся только из enum-а.
+     */
+    public List<OrderInStatusDto> findInStatusSince(OrderStatus status, LocalDateTime since, int limit) {
+        return this.jdbcTemplate.query(
+                """
+                select id, user_id, status_changed_at from ordering.orders
+                where order_status = '%s' and status_changed_at <= ?
+                order by status_changed_at
+                limit ?
+                """.formatted(status.name()),
+                (rs, rowNum) -> OrderInStatusDto.builder()
+                        .orderId(rs.getLong("id"))
+                        .userId(rs.getLong("user_id"))
+                        .statusChangedAt(rs.getObject("status_changed_at", LocalDateTime.class))
+                        .build(),
+                since, limit
+        );
+    }
+}
@@ -0,0 +1,14 @@
+package ru.stroy1click.order.service;
+
+import ru.stroy1click.order.dto.OrderDto;
+
+import java.util.List;
+
+public interface NotificationOutboxService {
+
+    void enqueue(OrderDto orderDto);
+
+    void enqueueAll(List<OrderDto> orderDtos);
+
+    int relay();
+}
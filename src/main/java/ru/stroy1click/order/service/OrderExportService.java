@@ -0,0 +1,19 @@
+package ru.stroy1click.order.service;
+
+import ru.stroy1click.order.dto.ExportFormat;
+import ru.stroy1click.order.dto.OrderExportProgressDto;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderExportService {
+
+    void export(ExportFormat format, OrderStatus status, LocalDateTime from, LocalDateTime to,
+                OutputStream outputStream);
+
+    void stream(OrderStatus status, LocalDateTime from, LocalDateTime to, OutputStream outputStream);
+
+    List<OrderExportProgressDto> getRunning();
+}
@@ -0,0 +1,9 @@
+package ru.stroy1click.order.service;
+
+public interface OrderPartitionService {
+
+    /**
+     * @return сколько партиций создано
+     */
+    int createAhead();
+}
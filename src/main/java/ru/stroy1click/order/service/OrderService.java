@@ -1,20 +1,44 @@
 package ru.stroy1click.order.service;
 
+import ru.stroy1click.order.dto.OrderBatchResultDto;
 import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderPageDto;
+import ru.stroy1click.order.dto.OrderPatchDto;
+import ru.stroy1click.order.entity.OrderStatus;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface OrderService {
 
     OrderDto get(Long id);
 
-    List<OrderDto> getAll();
+    OrderPageDto getAll(String cursor, Integer size, OrderStatus status, LocalDateTime from, LocalDateTime to);
 
     List<OrderDto> getByUserId(Long userId);
 
+    OrderPageDto getPageByUserId(Long userId, String cursor, Integer size, OrderStatus status,
+                                 LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Версия заказа для проверки If-None-Match без загрузки позиций
+     */
+    Long getVersion(Long id);
+
+    /**
+     * Отпечаток заказов пользователя для проверки If-None-Match без загрузки самих заказов
+     */
+    String getUserOrdersFingerprint(Long userId);
+
     OrderDto create(OrderDto orderDto);
 
-    void update(Long id, OrderDto orderDto);
+    List<OrderBatchResultDto> createBatch(List<OrderDto> orderDtos);
+
+    /**
+     * @param orderPatchDto изменяемые поля и ожидаемая версия заказа
+     * @return новая версия заказа
+     */
+    Long update(Long id, OrderPatchDto orderPatchDto);
 
     void delete(Long id);
 }
@@ -0,0 +1,10 @@
+package ru.stroy1click.order.service;
+
+import ru.stroy1click.order.dto.OrderStatsDto;
+
+import java.time.LocalDate;
+
+public interface OrderStatsService {
+
+    OrderStatsDto get(Long userId, LocalDate from, LocalDate to);
+}
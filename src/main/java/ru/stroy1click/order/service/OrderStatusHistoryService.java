@@ -0,0 +1,15 @@
+package ru.stroy1click.order.service;
+
+import ru.stroy1click.order.dto.OrderInStatusDto;
+import ru.stroy1click.order.dto.OrderStatusEventDto;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderStatusHistoryService {
+
+    List<OrderStatusEventDto> getHistory(Long orderId);
+
+    List<OrderInStatusDto> getInStatusSince(OrderStatus status, LocalDateTime since, Integer size);
+}
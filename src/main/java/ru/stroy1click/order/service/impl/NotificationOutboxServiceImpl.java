@@ -0,0 +1,130 @@
+package ru.stroy1click.order.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.entity.NotificationOutbox;
+import ru.stroy1click.order.repository.NotificationOutboxRepository;
+import ru.stroy1click.order.service.NotificationOutboxService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Уведомления о заказах через transactional outbox: запись в outbox коммитится вместе с заказом,
+ * поэтому при откате уведомление не уходит, а при падении сервиса - не теряется (at-least-once).
+ */
+@Slf4j
+@Service
+public class NotificationOutboxServiceImpl implements NotificationOutboxService {
+
+    private final NotificationOutboxRepository notificationOutboxRepository;
+
+    private final NotificationClient notificationClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Integer batchSize;
+
+    public NotificationOutboxServiceImpl(NotificationOutboxRepository notificationOutboxRepository,
+                                         NotificationClient notificationClient,
+                                         ObjectMapper objectMapper,
+                                         TransactionTemplate transactionTemplate,
+                                         @Value("${notification.outbox.batch-size:100}") Integer batchSize) {
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.notificationClient = notificationClient;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(OrderDto orderDto) {
+        this.notificationOutboxRepository.save(toOutbox(orderDto));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<OrderDto> orderDtos) {
+        List<NotificationOutbox> outbox = new ArrayList<>(orderDtos.size());
+        for (OrderDto orderDto : orderDtos) {
+            outbox.add(toOutbox(orderDto));
+        }
+        this.notificationOutboxRepository.saveAll(outbox);
+    }
+
+    /**
+     * Копит уведомления в outbox в течение poll-interval-ms и отправляет их пачками по batch-size.
+     * Если пачка набралась целиком, следующая отправляется сразу, не дожидаясь таймера.
+     */
+    @Scheduled(fixedDelayString = "${notification.outbox.poll-interval-ms:1000}")
+    public void relayPending() {
+        int sent;
+        do {
+            sent = relay();
+        } while (sent == this.batchSize);
+    }
+
+    /**
+     * Забирает пачку неотправленных уведомлений, отправляет её одним запросом и удаляет строки после успешного ответа.
+     * При ошибке строки остаются в outbox и будут отправлены повторно (at-least-once).
+     *
+     * @return количество отправленных уведомлений
+     */
+    @Override
+    public int relay() {
+        Integer sent = this.transactionTemplate.execute(status -> {
+            List<NotificationOutbox> batch = this.notificationOutboxRepository.lockBatch(this.batchSize);
+            if (batch.isEmpty()) return 0;
+
+            List<OrderDto> orderDtos = new ArrayList<>(batch.size());
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (NotificationOutbox notification : batch) {
+                ids.add(notification.getId());
+                try {
+                    orderDtos.add(this.objectMapper.readValue(notification.getPayload(), OrderDto.class));
+                } catch (JsonProcessingException e) {
+                    // повторная отправка не поможет, такую строку просто удаляем, чтобы она не блокировала очередь
+                    log.error("relay: broken payload {}", notification.getId(), e);
+                }
+            }
+
+            try {
+                // строки удаляются только после ответа, поэтому relay на потоке планировщика ждёт отправку
+                this.notificationClient.sendOrderNotifications(orderDtos).block();
+            } catch (RuntimeException e) {
+                log.warn("relay: {} notifications not sent, will retry", batch.size(), e);
+                return 0;
+            }
+
+            this.notificationOutboxRepository.deleteAllByIdInBatch(ids);
+            log.info("relay sent {}", orderDtos.size());
+            return batch.size();
+        });
+
+        return sent == null ? 0 : sent;
+    }
+
+    private NotificationOutbox toOutbox(OrderDto orderDto) {
+        try {
+            return NotificationOutbox.builder()
+                    .payload(this.objectMapper.writeValueAsString(orderDto))
+                    .createdAt(LocalDateTime.now())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Order notification serialization failed", e);
+        }
+    }
+}
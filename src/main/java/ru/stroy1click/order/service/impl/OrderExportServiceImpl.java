@@ -0,0 +1,250 @@
+package ru.stroy1click.order.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
+import ru.stroy1click.order.dto.ExportFormat;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderExportProgressDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.repository.OrderJdbcRepository;
+import ru.stroy1click.order.service.OrderExportService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгрузка заказов из JDBC-курсора прямо в gzip-поток. В памяти держатся только текущий заказ
+ * и буферы фиксированного размера, так что heap не растёт с объёмом выгрузки.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class OrderExportServiceImpl implements OrderExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long PROGRESS_LOG_INTERVAL = 100_000L;
+
+    private static final String CSV_HEADER =
+            "order_id,user_id,order_status,created_at,updated_at,contact_phone,notes,version,item_id,product_id,quantity\n";
+
+    private final OrderJdbcRepository orderJdbcRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ExportProgress> running = new ConcurrentHashMap<>();
+
+    public OrderExportServiceImpl(OrderJdbcRepository orderJdbcRepository,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.orderJdbcRepository = orderJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gaugeMapSize("order.export.running", List.of(), this.running);
+    }
+
+    /**
+     * Поток вызывающего не закрывается: закрытие gzip-обёртки дописывает трейлер и освобождает Deflater,
+     * а сам ответ закрывает контейнер.
+     */
+    @Override
+    public void export(ExportFormat format, OrderStatus status, LocalDateTime from, LocalDateTime to,
+                       OutputStream outputStream) {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(StreamUtils.nonClosing(outputStream), BUFFER_SIZE),
+                StandardCharsets.UTF_8
+        ), BUFFER_SIZE)) {
+            write(format, status, from, to, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * NDJSON без сжатия для GET /stream, тем же сериализатором, что и выгрузка в файл.
+     */
+    @Override
+    public void stream(OrderStatus status, LocalDateTime from, LocalDateTime to, OutputStream outputStream) {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                StreamUtils.nonClosing(outputStream), StandardCharsets.UTF_8
+        ), BUFFER_SIZE)) {
+            write(ExportFormat.NDJSON, status, from, to, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(ExportFormat format, OrderStatus status, LocalDateTime from, LocalDateTime to,
+                       Writer writer) throws IOException {
+        ExportProgress progress = new ExportProgress(UUID.randomUUID().toString(), format, LocalDateTime.now());
+        log.info("export {} started {}, {}, {}, {}", progress.id, format, status, from, to);
+
+        Counter exportedOrders = this.meterRegistry.counter(
+                "order.export.orders", "format", format.name().toLowerCase(Locale.ROOT)
+        );
+        this.running.put(progress.id, progress);
+        try {
+            OrderWriter orderWriter = switch (format) {
+                case CSV -> {
+                    writer.write(CSV_HEADER);
+                    yield orderDto -> writeCsv(writer, orderDto);
+                }
+                case NDJSON -> {
+                    ObjectWriter jsonWriter = this.objectMapper.writerFor(OrderDto.class)
+                            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    yield orderDto -> {
+                        jsonWriter.writeValue(writer, orderDto);
+                        writer.write('\n');
+                        return 1;
+                    };
+                }
+            };
+
+            this.orderJdbcRepository.streamAll(status, from, to, orderDto -> {
+                try {
+                    progress.rows.addAndGet(orderWriter.write(orderDto));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                exportedOrders.increment();
+                if (progress.orders.incrementAndGet() % PROGRESS_LOG_INTERVAL == 0) {
+                    log.info("export {} progress: {} orders, {} rows",
+                            progress.id, progress.orders.get(), progress.rows.get());
+                }
+            });
+        } finally {
+            this.running.remove(progress.id);
+            log.info("export {} finished: {} orders, {} rows", progress.id, progress.orders.get(), progress.rows.get());
+        }
+    }
+
+    @Override
+    public List<OrderExportProgressDto> getRunning() {
+        return this.running.values().stream()
+                .map(progress -> OrderExportProgressDto.builder()
+                        .id(progress.id)
+                        .format(progress.format)
+                        .startedAt(progress.startedAt)
+                        .orders(progress.orders.get())
+                        .rows(progress.rows.get())
+                        .build())
+                .sorted(Comparator.comparing(OrderExportProgressDto::getStartedAt))
+                .toList();
+    }
+
+    private static int writeCsv(Writer writer, OrderDto orderDto) throws IOException {
+        List<OrderItemDto> items = orderDto.getOrderItems();
+        if (items == null || items.isEmpty()) {
+            writeCsvOrder(writer, orderDto);
+            writer.write(",,\n");
+            return 1;
+        }
+
+        for (OrderItemDto item : items) {
+            writeCsvOrder(writer, orderDto);
+            writer.write(String.valueOf(item.getId()));
+            writer.write(',');
+            writer.write(String.valueOf(item.getProductId()));
+            writer.write(',');
+            writer.write(String.valueOf(item.getQuantity()));
+            writer.write('\n');
+        }
+        return items.size();
+    }
+
+    private static void writeCsvOrder(Writer writer, OrderDto orderDto) throws IOException {
+        writer.write(String.valueOf(orderDto.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(orderDto.getUserId()));
+        writer.write(',');
+        writer.write(orderDto.getOrderStatus().name());
+        writer.write(',');
+        writeCsvField(writer, orderDto.getCreatedAt());
+        writer.write(',');
+        writeCsvField(writer, orderDto.getUpdatedAt());
+        writer.write(',');
+        writeCsvField(writer, orderDto.getContactPhone());
+        writer.write(',');
+        writeCsvField(writer, orderDto.getNotes());
+        writer.write(',');
+        writer.write(String.valueOf(orderDto.getVersion()));
+        writer.write(',');
+    }
+
+    /**
+     * RFC 4180: значение с запятой, кавычкой или переводом строки берётся в кавычки, кавычки удваиваются.
+     * null пишется пустым полем.
+     */
+    private static void writeCsvField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        String text = value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @FunctionalInterface
+    private interface OrderWriter {
+
+        /**
+         * @return сколько строк записано
+         */
+        int write(OrderDto orderDto) throws IOException;
+    }
+
+    private static class ExportProgress {
+
+        private final String id;
+
+        private final ExportFormat format;
+
+        private final LocalDateTime startedAt;
+
+        private final AtomicLong orders = new AtomicLong();
+
+        private final AtomicLong rows = new AtomicLong();
+
+        private ExportProgress(String id, ExportFormat format, LocalDateTime startedAt) {
+            this.id = id;
+            this.format = format;
+            this.startedAt = startedAt;
+        }
+    }
+}
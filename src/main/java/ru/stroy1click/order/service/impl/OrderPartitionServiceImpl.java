@@ -0,0 +1,80 @@
+package ru.stroy1click.order.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.stroy1click.order.repository.OrderPartitionRepository;
+import ru.stroy1click.order.service.OrderPartitionService;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Создаёт партиции orders на orders-partitioning.months-ahead месяцев вперёд. V5 создаёт их только на год:
+ * без этой задачи новые заказы попали бы в orders_default, и партицию на их месяц уже нельзя было бы создать.
+ * На непартиционированной orders ничего не делает.
+ */
+@Slf4j
+@Service
+public class OrderPartitionServiceImpl implements OrderPartitionService {
+
+    private final OrderPartitionRepository orderPartitionRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Integer monthsAhead;
+
+    public OrderPartitionServiceImpl(OrderPartitionRepository orderPartitionRepository,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${orders-partitioning.months-ahead:3}") Integer monthsAhead) {
+        this.orderPartitionRepository = orderPartitionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    /**
+     * Первый запуск - сразу после старта, дальше раз в check-interval-hours.
+     */
+    @Scheduled(fixedDelayString = "${orders-partitioning.check-interval-hours:6}", timeUnit = TimeUnit.HOURS)
+    public void createAheadScheduled() {
+        createAhead();
+    }
+
+    /**
+     * Каждая партиция создаётся в своей транзакции: ошибка на одном месяце не откатывает остальные.
+     */
+    @Override
+    public int createAhead() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        int created = 0;
+        for (int i = 0; i <= this.monthsAhead; i++) {
+            LocalDate monthStart = currentMonth.plusMonths(i);
+            Boolean partitionCreated;
+            try {
+                partitionCreated = this.transactionTemplate.execute(status -> {
+                    if (!this.orderPartitionRepository.isPartitioned()) return null;
+
+                    this.orderPartitionRepository.lock();
+                    if (this.orderPartitionRepository.exists(monthStart)) return false;
+
+                    this.orderPartitionRepository.create(monthStart);
+                    return true;
+                });
+            } catch (DataAccessException e) {
+                // заказы этого месяца уже лежат в orders_default, их нужно перенести вручную
+                log.error("orders partition {} not created", OrderPartitionRepository.name(monthStart), e);
+                continue;
+            }
+            if (partitionCreated == null) return created;
+
+            if (partitionCreated) {
+                created++;
+                log.info("orders partition {} created", OrderPartitionRepository.name(monthStart));
+            }
+        }
+        return created;
+    }
+}
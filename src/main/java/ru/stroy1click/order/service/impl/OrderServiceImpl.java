@@ -1,35 +1,59 @@
 package ru.stroy1click.order.service.impl;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.context.MessageSource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.stroy1click.order.cache.CacheClear;
-import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.cache.OrderListCache;
+import ru.stroy1click.order.datasource.ReadYourWrites;
+import ru.stroy1click.order.dto.OrderBatchResultDto;
 import ru.stroy1click.order.dto.OrderDto;
-import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.dto.OrderPageDto;
+import ru.stroy1click.order.dto.OrderPatchDto;
 import ru.stroy1click.order.entity.Order;
 import ru.stroy1click.order.entity.OrderItem;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.exception.ConflictException;
 import ru.stroy1click.order.exception.NotFoundException;
+import ru.stroy1click.order.exception.PreconditionRequiredException;
+import ru.stroy1click.order.exception.ValidationException;
 import ru.stroy1click.order.mapper.OrderItemMapper;
 import ru.stroy1click.order.mapper.OrderMapper;
 import ru.stroy1click.order.repository.OrderRepository;
+import ru.stroy1click.order.service.NotificationOutboxService;
 import ru.stroy1click.order.service.OrderService;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Locale;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
 
+/**
+ * Время методов пишется в order.service (теги class, method, exception). Кэширующий прокси стоит снаружи @Timed,
+ * поэтому для get и getByUserId здесь только загрузки из базы, а попадания в кэш - в order.cache.get.
+ */
 @Slf4j
 @Service
+@Timed(value = "order.service", histogram = true)
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final int MAX_BATCH_SIZE = 1_000;
+
     private final OrderRepository orderRepository;
 
     private final OrderMapper orderMapper;
@@ -40,53 +64,142 @@ public class OrderServiceImpl implements OrderService {
 
     private final CacheClear cacheClear;
 
-    private final NotificationClient notificationClient;
+    private final OrderListCache orderListCache;
+
+    private final NotificationOutboxService notificationOutboxService;
+
+    private final Validator validator;
+
+    private final ReadYourWrites readYourWrites;
 
     @Override
-    @Cacheable(cacheNames = "order", key = "#id")
+    @Cacheable(cacheNames = "order", key = "#id", sync = true)
     public OrderDto get(Long id) {
         log.info("get {}", id);
 
-        return this.orderMapper.toDto(this.orderRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException(
-                        this.messageSource.getMessage(
-                                "error.order.not_found",
-                                null,
-                                Locale.getDefault()
-                        )
-                )));
+        return this.readYourWrites.read(ReadYourWrites.orderKey(id), () ->
+                this.orderMapper.toDto(this.orderRepository.findWithItemsById(id)
+                        .orElseThrow(() -> new NotFoundException(
+                                this.messageSource.getMessage(
+                                        "error.order.not_found",
+                                        null,
+                                        Locale.getDefault()
+                                )
+                        )))
+        );
     }
 
+    /**
+     * Страницы без фильтров отдаются из {@link OrderListCache}, с фильтрами - из базы.
+     */
     @Override
-    @Cacheable(value = "allOrders")
-    public List<OrderDto> getAll() {
-        log.info("getAll");
+    public OrderPageDto getAll(String cursor, Integer size, OrderStatus status,
+                               LocalDateTime from, LocalDateTime to) {
+        log.info("getAll {}, {}, {}, {}, {}", cursor, size, status, from, to);
 
-        return this.orderMapper.toDto(
-                this.orderRepository.findAll()
-        );
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.clamp(size, 1, MAX_PAGE_SIZE);
+        Long afterId = parseIdCursor(cursor);
+
+        List<OrderDto> orders = null;
+        if (status == null && from == null && to == null) {
+            orders = this.orderListCache.getPage(afterId, pageSize).orElse(null);
+        }
+        if (orders == null) {
+            orders = this.orderMapper.toDto(
+                    this.orderRepository.findPage(afterId, status, from, to, PageRequest.ofSize(pageSize))
+            );
+        }
+
+        String nextCursor = orders.size() == pageSize
+                ? String.valueOf(orders.getLast().getId())
+                : null;
+
+        return OrderPageDto.builder()
+                .orders(orders)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     @Override
-    @Cacheable(cacheNames = "ordersByUserId", key = "#userId")
+    @Cacheable(cacheNames = "ordersByUserId", key = "#userId", sync = true)
     public List<OrderDto> getByUserId(Long userId) {
         log.info("getByUserId {}", userId);
 
-        return this.orderMapper.toDto(
-                this.orderRepository.findByUserId(userId)
+        return this.readYourWrites.read(ReadYourWrites.userKey(userId), () ->
+                this.orderMapper.toDto(this.orderRepository.findByUserId(userId))
+        );
+    }
+
+    /**
+     * Кэшируется только первая страница без фильтров стандартного размера (DEFAULT_PAGE_SIZE): её запрашивают
+     * чаще всего, и новый заказ пользователя сбрасывает одну небольшую запись, а не все его заказы.
+     */
+    @Override
+    @Cacheable(cacheNames = "ordersByUserIdFirstPage", key = "#userId", sync = true,
+            condition = "#cursor == null and #status == null and #from == null and #to == null"
+                    + " and (#size == null or #size == 50)")
+    public OrderPageDto getPageByUserId(Long userId, String cursor, Integer size, OrderStatus status,
+                                        LocalDateTime from, LocalDateTime to) {
+        log.info("getPageByUserId {}, {}, {}, {}, {}, {}", userId, cursor, size, status, from, to);
+
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.clamp(size, 1, MAX_PAGE_SIZE);
+        UserOrdersCursor after = parseUserOrdersCursor(cursor);
+
+        List<OrderDto> orders = this.readYourWrites.read(ReadYourWrites.userKey(userId), () ->
+                this.orderMapper.toDto(this.orderRepository.findPageByUserId(
+                        userId,
+                        after == null ? null : after.createdAt(),
+                        after == null ? null : after.id(),
+                        status, from, to,
+                        PageRequest.ofSize(pageSize)
+                ))
+        );
+
+        String nextCursor = orders.size() == pageSize
+                ? formatUserOrdersCursor(orders.getLast())
+                : null;
+
+        return OrderPageDto.builder()
+                .orders(orders)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Override
+    @Cacheable(cacheNames = "orderVersion", key = "#id", sync = true)
+    public Long getVersion(Long id) {
+        log.info("getVersion {}", id);
+
+        return this.readYourWrites.read(ReadYourWrites.orderKey(id), () ->
+                this.orderRepository.findVersionById(id)
+                        .orElseThrow(() -> new NotFoundException(
+                                this.messageSource.getMessage(
+                                        "error.order.not_found",
+                                        null,
+                                        Locale.getDefault()
+                                )
+                        ))
+        );
+    }
+
+    @Override
+    @Cacheable(cacheNames = "userOrdersFingerprint", key = "#userId", sync = true)
+    public String getUserOrdersFingerprint(Long userId) {
+        log.info("getUserOrdersFingerprint {}", userId);
+
+        return this.readYourWrites.read(ReadYourWrites.userKey(userId), () ->
+                this.orderRepository.findOrdersFingerprintByUserId(userId)
         );
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = "ordersByUserId", key = "#orderDto.userId"),
-            @CacheEvict(value = "allOrders", allEntries = true)
-    })
+    @CacheEvict(cacheNames = {"ordersByUserId", "ordersByUserIdFirstPage"}, key = "#orderDto.userId")
     public OrderDto create(OrderDto orderDto) {
         log.info("create {}", orderDto);
 
         orderDto.setId(null);
+        orderDto.setVersion(null);
         Order order = this.orderMapper.toEntity(orderDto);
         // явно проставляем order всем каскадам
         List<OrderItem> orderItems = this.orderItemMapper.toEntity(orderDto.getOrderItems())
@@ -99,52 +212,153 @@ public class OrderServiceImpl implements OrderService {
                 this.orderRepository.save(order)
         );
 
-        this.notificationClient.sendOrderNotification(createdOrder);
+        this.notificationOutboxService.enqueue(createdOrder);
+        this.orderListCache.putAfterCommit(createdOrder);
+        this.cacheClear.clearUserOrdersFingerprint(createdOrder.getUserId());
+        this.readYourWrites.written(List.of(
+                ReadYourWrites.orderKey(createdOrder.getId()), ReadYourWrites.userKey(createdOrder.getUserId())
+        ));
 
         return createdOrder;
     }
 
+    /**
+     * Невалидные заказы пропускаются и попадают в ответ с текстом ошибки, валидные сохраняются одной транзакцией.
+     * id выдаются из последовательности пачками (allocationSize = 50), поэтому Hibernate
+     * отправляет insert-ы батчами по hibernate.jdbc.batch_size.
+     */
+    @Override
+    @Transactional
+    public List<OrderBatchResultDto> createBatch(List<OrderDto> orderDtos) {
+        log.info("createBatch {}", orderDtos.size());
+
+        if (orderDtos.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException(
+                    this.messageSource.getMessage(
+                            "error.batch.too_large",
+                            new Object[]{String.valueOf(MAX_BATCH_SIZE)},
+                            Locale.getDefault()
+                    )
+            );
+        }
+
+        List<OrderBatchResultDto> results = new ArrayList<>(orderDtos.size());
+        List<Order> orders = new ArrayList<>(orderDtos.size());
+        List<OrderBatchResultDto> createdResults = new ArrayList<>(orderDtos.size());
+
+        for (int i = 0; i < orderDtos.size(); i++) {
+            OrderDto orderDto = orderDtos.get(i);
+            OrderBatchResultDto result = OrderBatchResultDto.builder().index(i).build();
+            results.add(result);
+
+            String error = validate(orderDto);
+            if (error != null) {
+                result.setError(error);
+                continue;
+            }
+
+            orderDto.setId(null);
+            orderDto.setVersion(null);
+            orders.add(this.orderMapper.toEntity(orderDto));
+            createdResults.add(result);
+        }
+
+        List<Order> savedOrders = this.orderRepository.saveAll(orders);
+
+        Set<Long> userIds = new HashSet<>();
+        List<String> writtenKeys = new ArrayList<>(savedOrders.size() * 2);
+        for (int i = 0; i < savedOrders.size(); i++) {
+            Order savedOrder = savedOrders.get(i);
+            createdResults.get(i).setId(savedOrder.getId());
+            userIds.add(savedOrder.getUserId());
+            writtenKeys.add(ReadYourWrites.orderKey(savedOrder.getId()));
+        }
+        userIds.forEach(userId -> writtenKeys.add(ReadYourWrites.userKey(userId)));
+        this.readYourWrites.written(writtenKeys);
+        List<OrderDto> createdOrders = this.orderMapper.toDto(savedOrders);
+        this.notificationOutboxService.enqueueAll(createdOrders);
+        this.orderListCache.putAllAfterCommit(createdOrders);
+
+        userIds.forEach(this.cacheClear::clearOrdersByUserId);
+
+        return results;
+    }
+
+    /**
+     * Один UPDATE ... RETURNING вместо загрузки заказа, пересборки сущности и merge. Строка меняется,
+     * только если версия совпала, поэтому из двух изменений с одной версией проходит одно.
+     * Второй запрос выполняется только при неудаче, чтобы отличить отсутствие заказа от конфликта версий.
+     */
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(cacheNames = "order", key = "#id"),
-            @CacheEvict(value = "ordersByUserId", key = "#orderDto.userId"),
-            @CacheEvict(value = "allOrders", allEntries = true)
-    })
-    public void update(Long id, OrderDto orderDto) {
-        log.info("update {}, {}", id, orderDto);
-
-        this.orderRepository.findById(id).ifPresentOrElse(order -> {
-            List<OrderItemDto> orderItems = this.orderItemMapper.toDto(order.getOrderItems());
-            OrderDto updatedOrderDto = OrderDto.builder()
-                    .id(id)
-                    .notes(orderDto.getNotes())
-                    .orderStatus(orderDto.getOrderStatus())
-                    .createdAt(order.getCreatedAt())
-                    .updatedAt(LocalDateTime.now())
-                    .orderItems(orderItems)
-                    .contactPhone(orderDto.getContactPhone())
-                    .userId(order.getUserId())
-                    .build();
-
-            this.orderRepository.save(this.orderMapper.toEntity(updatedOrderDto));
-        }, () -> {
-            throw new NotFoundException(
+    @CacheEvict(cacheNames = "order", key = "#id")
+    public Long update(Long id, OrderPatchDto orderPatchDto) {
+        log.info("update {}, {}", id, orderPatchDto);
+
+        if (orderPatchDto.getVersion() == null) {
+            throw new PreconditionRequiredException(
+                    this.messageSource.getMessage(
+                            "error.order.version_required",
+                            null,
+                            Locale.getDefault()
+                    )
+            );
+        }
+        if (orderPatchDto.getNotes() == null && orderPatchDto.getOrderStatus() == null
+                && orderPatchDto.getContactPhone() == null) {
+            throw new ValidationException(
                     this.messageSource.getMessage(
-                            "error.order.not_found",
+                            "error.order.patch_empty",
                             null,
                             Locale.getDefault()
                     )
             );
+        }
+
+        LocalDateTime updatedAt = LocalDateTime.now();
+        OrderRepository.UpdatedOrder updatedOrder = this.orderRepository.updateFields(
+                id,
+                orderPatchDto.getNotes(),
+                orderPatchDto.getOrderStatus() == null ? null : orderPatchDto.getOrderStatus().name(),
+                orderPatchDto.getContactPhone(),
+                updatedAt,
+                orderPatchDto.getVersion()
+        ).orElseThrow(() -> this.orderRepository.existsById(id)
+                ? new ConflictException(
+                        this.messageSource.getMessage(
+                                "error.order.version_conflict",
+                                null,
+                                Locale.getDefault()
+                        )
+                )
+                : new NotFoundException(
+                        this.messageSource.getMessage(
+                                "error.order.not_found",
+                                null,
+                                Locale.getDefault()
+                        )
+                ));
+
+        this.readYourWrites.written(List.of(
+                ReadYourWrites.orderKey(id), ReadYourWrites.userKey(updatedOrder.getUserId())
+        ));
+        this.cacheClear.clearOrdersByUserId(updatedOrder.getUserId());
+        this.cacheClear.clearOrderVersion(id);
+        this.orderListCache.patchAfterCommit(id, updatedOrder.getVersion(), cached -> {
+            if (orderPatchDto.getNotes() != null) cached.setNotes(orderPatchDto.getNotes());
+            if (orderPatchDto.getOrderStatus() != null) cached.setOrderStatus(orderPatchDto.getOrderStatus());
+            if (orderPatchDto.getContactPhone() != null) cached.setContactPhone(orderPatchDto.getContactPhone());
+            cached.setUpdatedAt(updatedAt);
+            cached.setVersion(updatedOrder.getVersion());
+            return cached;
         });
+
+        return updatedOrder.getVersion();
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(cacheNames = "order", key = "#id"),
-            @CacheEvict(value = "allOrders", allEntries = true)
-    })
+    @CacheEvict(cacheNames = "order", key = "#id")
     public void delete(Long id) {
         log.info("delete {}", id);
 
@@ -160,6 +374,72 @@ public class OrderServiceImpl implements OrderService {
 
         this.orderRepository.delete(order);
 
+        this.readYourWrites.written(List.of(
+                ReadYourWrites.orderKey(id), ReadYourWrites.userKey(order.getUserId())
+        ));
         this.cacheClear.clearOrdersByUserId(order.getUserId());
+        this.cacheClear.clearOrderVersion(id);
+        this.orderListCache.removeAfterCommit(id);
+    }
+
+    private Long parseIdCursor(String cursor) {
+        if (cursor == null) return null;
+
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new ValidationException(
+                    this.messageSource.getMessage(
+                            "error.cursor.invalid",
+                            null,
+                            Locale.getDefault()
+                    )
+            );
+        }
+    }
+
+    /**
+     * Курсор страницы заказов пользователя - base64url от "created_at,id" последнего заказа страницы.
+     */
+    private UserOrdersCursor parseUserOrdersCursor(String cursor) {
+        if (cursor == null) return null;
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = decoded.indexOf(',');
+            return new UserOrdersCursor(
+                    LocalDateTime.parse(decoded.substring(0, comma)),
+                    Long.valueOf(decoded.substring(comma + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ValidationException(
+                    this.messageSource.getMessage(
+                            "error.cursor.invalid",
+                            null,
+                            Locale.getDefault()
+                    )
+            );
+        }
+    }
+
+    private String formatUserOrdersCursor(OrderDto last) {
+        String cursor = last.getCreatedAt() + "," + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String validate(OrderDto orderDto) {
+        if (orderDto == null) {
+            return this.messageSource.getMessage("error.batch.empty_order", null, Locale.getDefault());
+        }
+
+        Set<ConstraintViolation<OrderDto>> violations = this.validator.validate(orderDto);
+        if (violations.isEmpty()) return null;
+
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining(", "));
+    }
+
+    private record UserOrdersCursor(LocalDateTime createdAt, Long id) {
     }
 }
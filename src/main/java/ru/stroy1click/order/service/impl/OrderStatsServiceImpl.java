@@ -0,0 +1,74 @@
+package ru.stroy1click.order.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.stroy1click.order.dto.OrderStatsDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.exception.ValidationException;
+import ru.stroy1click.order.repository.OrderStatsRepository;
+import ru.stroy1click.order.service.OrderStatsService;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderStatsServiceImpl implements OrderStatsService {
+
+    private static final int DEFAULT_PERIOD_DAYS = 30;
+
+    private static final int MAX_PERIOD_DAYS = 366;
+
+    private final OrderStatsRepository orderStatsRepository;
+
+    private final MessageSource messageSource;
+
+    @Override
+    public OrderStatsDto get(Long userId, LocalDate from, LocalDate to) {
+        log.info("get stats {}, {}, {}", userId, from, to);
+
+        LocalDate periodTo = to == null ? LocalDate.now() : to;
+        LocalDate periodFrom = from == null ? periodTo.minusDays(DEFAULT_PERIOD_DAYS - 1) : from;
+        long days = ChronoUnit.DAYS.between(periodFrom, periodTo) + 1;
+        if (days < 1 || days > MAX_PERIOD_DAYS) {
+            throw new ValidationException(
+                    this.messageSource.getMessage(
+                            "error.stats.invalid_period",
+                            new Object[]{String.valueOf(MAX_PERIOD_DAYS)},
+                            Locale.getDefault()
+                    )
+            );
+        }
+
+        Map<LocalDate, Long> counts = this.orderStatsRepository.countByDay(periodFrom, periodTo);
+        Map<LocalDate, Long> byDay = new LinkedHashMap<>();
+        for (LocalDate day = periodFrom; !day.isAfter(periodTo); day = day.plusDays(1)) {
+            byDay.put(day, counts.getOrDefault(day, 0L));
+        }
+
+        return OrderStatsDto.builder()
+                .byStatus(withAllStatuses(this.orderStatsRepository.countByStatus()))
+                .byUserStatus(userId == null
+                        ? null
+                        : withAllStatuses(this.orderStatsRepository.countByStatusForUser(userId)))
+                .byDay(byDay)
+                .build();
+    }
+
+    private Map<OrderStatus, Long> withAllStatuses(Map<OrderStatus, Long> counts) {
+        Map<OrderStatus, Long> result = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            result.put(status, counts.getOrDefault(status, 0L));
+        }
+        return result;
+    }
+}
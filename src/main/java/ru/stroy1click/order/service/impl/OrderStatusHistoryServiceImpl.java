@@ -0,0 +1,87 @@
+package ru.stroy1click.order.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.stroy1click.order.datasource.ReadYourWrites;
+import ru.stroy1click.order.dto.OrderInStatusDto;
+import ru.stroy1click.order.dto.OrderStatusEventDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.exception.NotFoundException;
+import ru.stroy1click.order.exception.ValidationException;
+import ru.stroy1click.order.repository.OrderStatusHistoryRepository;
+import ru.stroy1click.order.service.OrderStatusHistoryService;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderStatusHistoryServiceImpl implements OrderStatusHistoryService {
+
+    /**
+     * Статусы из условия частичного индекса orders_status_since_idx (V8__order_status_events.sql)
+     */
+    private static final Set<OrderStatus> INDEXED_STATUSES =
+            EnumSet.of(OrderStatus.CREATED, OrderStatus.PAID, OrderStatus.SHIPPED);
+
+    private static final int DEFAULT_SIZE = 100;
+
+    private static final int MAX_SIZE = 1_000;
+
+    private final OrderStatusHistoryRepository orderStatusHistoryRepository;
+
+    private final MessageSource messageSource;
+
+    private final ReadYourWrites readYourWrites;
+
+    @Override
+    public List<OrderStatusEventDto> getHistory(Long orderId) {
+        log.info("getHistory {}", orderId);
+
+        List<OrderStatusEventDto> history = this.readYourWrites.read(ReadYourWrites.orderKey(orderId), () ->
+                this.orderStatusHistoryRepository.findByOrderId(orderId)
+        );
+        // у любого заказа есть хотя бы событие создания, пустая история - только у несуществующего
+        if (history.isEmpty()) {
+            throw new NotFoundException(
+                    this.messageSource.getMessage(
+                            "error.order.not_found",
+                            null,
+                            Locale.getDefault()
+                    )
+            );
+        }
+        return history;
+    }
+
+    /**
+     * Для завершённых статусов индекса нет, а выборка по ним сканировала бы большую часть orders.
+     */
+    @Override
+    public List<OrderInStatusDto> getInStatusSince(OrderStatus status, LocalDateTime since, Integer size) {
+        log.info("getInStatusSince {}, {}, {}", status, since, size);
+
+        if (!INDEXED_STATUSES.contains(status)) {
+            throw new ValidationException(
+                    this.messageSource.getMessage(
+                            "error.status_since.unsupported_status",
+                            new Object[]{INDEXED_STATUSES.toString()},
+                            Locale.getDefault()
+                    )
+            );
+        }
+
+        int limit = size == null ? DEFAULT_SIZE : Math.clamp(size, 1, MAX_SIZE);
+        return this.orderStatusHistoryRepository.findInStatusSince(
+                status, since == null ? LocalDateTime.now() : since, limit
+        );
+    }
+}
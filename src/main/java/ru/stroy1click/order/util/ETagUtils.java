@@ -0,0 +1,76 @@
+package ru.stroy1click.order.util;
+
+import ru.stroy1click.order.dto.OrderDto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * ETag-и заказов. Версия растёт при каждом изменении заказа, поэтому пара id и версии однозначно задаёт тело ответа.
+ */
+public class ETagUtils {
+
+    public static String order(Long id, Long version) {
+        return id + "-" + version;
+    }
+
+    public static String order(OrderDto orderDto) {
+        return orderDto.getVersion() == null ? null : order(orderDto.getId(), orderDto.getVersion());
+    }
+
+    /**
+     * Версия из ETag заказа в If-Match, в кавычках или без, сильного или слабого (W/).
+     *
+     * @return null - если ETag не в формате {@link #order(Long, Long)} или выдан для другого заказа
+     */
+    public static Long orderVersion(Long id, String eTag) {
+        String value = eTag.strip();
+        if (value.startsWith("W/")) value = value.substring(2);
+        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+
+        String prefix = id + "-";
+        if (!value.startsWith(prefix)) return null;
+        try {
+            return Long.valueOf(value.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param fingerprint md5 из OrderRepository.findOrdersFingerprintByUserId
+     */
+    public static String userOrders(String fingerprint) {
+        return "u-" + fingerprint;
+    }
+
+    /**
+     * Тот же md5, что считает OrderRepository.findOrdersFingerprintByUserId:
+     * "id:version" через запятую по возрастанию id.
+     */
+    public static String userOrders(List<OrderDto> orderDtos) {
+        List<OrderDto> sorted = new ArrayList<>(orderDtos);
+        sorted.sort(Comparator.comparing(OrderDto::getId));
+
+        StringBuilder fingerprint = new StringBuilder(sorted.size() * 16);
+        for (OrderDto orderDto : sorted) {
+            if (orderDto.getVersion() == null) return null;
+            if (!fingerprint.isEmpty()) fingerprint.append(',');
+            fingerprint.append(orderDto.getId()).append(':').append(orderDto.getVersion());
+        }
+
+        try {
+            byte[] md5 = MessageDigest.getInstance("MD5").digest(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+            return userOrders(HexFormat.of().formatHex(md5));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
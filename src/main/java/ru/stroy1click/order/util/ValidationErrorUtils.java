@@ -3,15 +3,16 @@ package ru.stroy1click.order.util;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ProblemDetail;
-import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.validation.FieldError;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
 import ru.stroy1click.order.exception.NotFoundException;
 import ru.stroy1click.order.exception.ServiceErrorResponseException;
 import ru.stroy1click.order.exception.ServiceUnavailableException;
 import ru.stroy1click.order.exception.ValidationException;
 
-import java.io.IOException;
 import java.util.List;
 
 public class ValidationErrorUtils {
@@ -23,11 +24,27 @@ public class ValidationErrorUtils {
                 .replace("[", "").replace("]", "");
     }
 
-    public static void validateStatus(ClientHttpResponse response) throws IOException {
-        String errorBody = extractErrorDetail(response);
-        HttpStatus httpStatus = HttpStatus.resolve(response.getStatusCode().value());
+    /**
+     * Превращает ошибочный ответ WebClient в исключение по статусу, detail берётся из ProblemDetail в теле.
+     */
+    public static Mono<RuntimeException> toException(ClientResponse response) {
+        return response.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .map(body -> {
+                    try {
+                        validateStatus(response.statusCode(), body);
+                        return new RuntimeException("Unexpected status code: " + response.statusCode().value());
+                    } catch (RuntimeException e) {
+                        return e;
+                    }
+                });
+    }
+
+    private static void validateStatus(HttpStatusCode statusCode, byte[] body) {
+        String errorBody = extractErrorDetail(body);
+        HttpStatus httpStatus = HttpStatus.resolve(statusCode.value());
 
-        if (httpStatus == null)  throw new RuntimeException("Unknown HTTP status: " + response.getStatusCode().value());
+        if (httpStatus == null)  throw new RuntimeException("Unknown HTTP status: " + statusCode.value());
 
         if (httpStatus.is4xxClientError()) {
             throwOnUserError(httpStatus, errorBody);
@@ -36,9 +53,8 @@ public class ValidationErrorUtils {
         }
     }
 
-    private static String extractErrorDetail(ClientHttpResponse response) {
+    private static String extractErrorDetail(byte[] bodyBytes) {
         try {
-            byte[] bodyBytes = response.getBody().readAllBytes();
             if (bodyBytes.length == 0) throw new RuntimeException("bodyBytes length is 0");
 
             ProblemDetail problem = objectMapper.readValue(bodyBytes, ProblemDetail.class);
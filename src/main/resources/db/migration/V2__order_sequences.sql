@@ -0,0 +1,11 @@
+-- identity не даёт Hibernate батчить insert-ы, переходим на последовательности с шагом 50 (pooled)
+alter table ordering.orders alter column id drop identity if exists;
+alter table ordering.order_items alter column id drop identity if exists;
+
+create sequence if not exists ordering.orders_seq increment by 50;
+create sequence if not exists ordering.order_items_seq increment by 50;
+
+-- pooled-оптимизатор выдаёт id из диапазона (nextval - 49 .. nextval], поэтому первый nextval должен быть
+-- не меньше max(id) + 50, иначе новые id пересекутся с существующими
+select setval('ordering.orders_seq', (select coalesce(max(id), 0) from ordering.orders) + 50, false);
+select setval('ordering.order_items_seq', (select coalesce(max(id), 0) from ordering.order_items) + 50, false);
@@ -0,0 +1,8 @@
+-- Transactional outbox: уведомление пишется в одной транзакции с заказом, отправку делает NotificationOutboxRelay
+create sequence if not exists ordering.notification_outbox_seq increment by 50;
+
+create table if not exists ordering.notification_outbox(
+    id bigint primary key ,
+    payload text not null ,
+    created_at timestamp not null
+);
@@ -0,0 +1,3 @@
+-- concurrently - чтобы не блокировать запись в таблицы на время построения индексов на проде
+create index concurrently if not exists orders_user_id_created_at_idx on ordering.orders (user_id, created_at);
+create index concurrently if not exists order_items_order_id_idx on ordering.order_items (order_id);
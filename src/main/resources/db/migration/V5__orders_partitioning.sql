@@ -0,0 +1,64 @@
+-- Помесячное партиционирование orders по created_at. Включается плейсхолдером
+-- spring.flyway.placeholders.orders_partitioning_enabled=true до первого применения этой миграции.
+-- Первичный ключ партиционированной таблицы обязан включать ключ партиционирования, поэтому он становится
+-- (id, created_at), а внешний ключ order_items -> orders снимается: целостность обеспечивает каскад в Order.
+
+-- Создаёт партицию на месяц, в который попадает month_start. Вызывать по расписанию заранее,
+-- например: select ordering.create_orders_partition((date_trunc('month', now()) + interval '2 months')::date);
+create or replace function ordering.create_orders_partition(month_start date) returns void
+language plpgsql as $$
+declare
+    from_ts timestamp := date_trunc('month', month_start);
+begin
+    execute format(
+            'create table if not exists ordering.%I partition of ordering.orders for values from (%L) to (%L)',
+            'orders_' || to_char(from_ts, 'YYYY_MM'),
+            from_ts,
+            from_ts + interval '1 month'
+    );
+end
+$$;
+
+do $$
+declare
+    month_start timestamp;
+begin
+    if '${orders_partitioning_enabled}' <> 'true' then
+        return;
+    end if;
+
+    alter table ordering.order_items drop constraint if exists order_items_order_id_fkey;
+    alter table ordering.orders rename to orders_unpartitioned;
+
+    create table ordering.orders(
+        id bigint not null ,
+        notes varchar(10000) not null ,
+        order_status varchar not null ,
+        created_at timestamp not null ,
+        updated_at timestamp not null ,
+        contact_phone varchar(12) not null ,
+        user_id bigint not null ,
+        primary key (id, created_at)
+    ) partition by range (created_at);
+
+    create table ordering.orders_default partition of ordering.orders default;
+
+    for month_start in
+        select generate_series(
+                       date_trunc('month', coalesce((select min(created_at) from ordering.orders_unpartitioned), now())),
+                       date_trunc('month', now()) + interval '12 months',
+                       interval '1 month'
+               )
+    loop
+        perform ordering.create_orders_partition(month_start::date);
+    end loop;
+
+    insert into ordering.orders (id, notes, order_status, created_at, updated_at, contact_phone, user_id)
+    select id, notes, order_status, created_at, updated_at, contact_phone, user_id
+    from ordering.orders_unpartitioned;
+
+    drop table ordering.orders_unpartitioned;
+
+    create index if not exists orders_user_id_created_at_idx on ordering.orders (user_id, created_at);
+end
+$$;
@@ -0,0 +1 @@
+alter table ordering.orders add column if not exists version bigint not null default 0;
@@ -0,0 +1,103 @@
+-- Счётчики для GET /api/v1/orders/stats. Поддерживаются триггерами на ordering.orders, поэтому учитывают
+-- любую запись в таблицу, включая batch-вставки и частичный UPDATE, и никогда не требуют сканировать orders.
+-- Глобальные и дневные счётчики разбиты на 16 слотов (id % 16): параллельные вставки обновляют разные строки
+-- и не ждут друг друга на блокировке одной горячей строки, при чтении слоты суммируются.
+
+create table if not exists ordering.order_status_counts(
+    status varchar not null ,
+    slot smallint not null ,
+    count bigint not null ,
+    primary key (status, slot)
+);
+
+create table if not exists ordering.order_user_status_counts(
+    user_id bigint not null ,
+    status varchar not null ,
+    count bigint not null ,
+    primary key (user_id, status)
+);
+
+create table if not exists ordering.order_daily_counts(
+    day date not null ,
+    slot smallint not null ,
+    count bigint not null ,
+    primary key (day, slot)
+);
+
+-- Применяет пачку изменений (+1 / -1 на заказ), сгруппированную по ключам счётчиков.
+-- Строки счётчиков блокируются в порядке ключей, чтобы параллельные batch-вставки не ловили deadlock.
+create or replace function ordering.order_stats_apply(p_status varchar[], p_user_id bigint[], p_day date[],
+                                                      p_slot smallint[], p_delta int[]) returns void
+language sql as $$
+    with deltas as (
+        select * from unnest(p_status, p_user_id, p_day, p_slot, p_delta) as d(status, user_id, day, slot, delta)
+    ),
+    by_status as (
+        insert into ordering.order_status_counts as c (status, slot, count)
+        select status, slot, sum(delta) from deltas group by status, slot having sum(delta) <> 0 order by status, slot
+        on conflict (status, slot) do update set count = c.count + excluded.count
+    ),
+    by_user as (
+        insert into ordering.order_user_status_counts as c (user_id, status, count)
+        select user_id, status, sum(delta) from deltas group by user_id, status having sum(delta) <> 0 order by user_id, status
+        on conflict (user_id, status) do update set count = c.count + excluded.count
+    )
+    insert into ordering.order_daily_counts as c (day, slot, count)
+    select day, slot, sum(delta) from deltas group by day, slot having sum(delta) <> 0 order by day, slot
+    on conflict (day, slot) do update set count = c.count + excluded.count;
+$$;
+
+-- Statement-level триггеры с transition-таблицами: batch-вставка обновляет счётчики один раз на запрос, а не на строку.
+create or replace function ordering.order_stats_on_change() returns trigger
+language plpgsql as $$
+begin
+    if tg_op = 'INSERT' then
+        perform ordering.order_stats_apply(array_agg(order_status), array_agg(user_id), array_agg(created_at::date),
+                                           array_agg((id % 16)::smallint), array_agg(1))
+        from new_rows;
+    elsif tg_op = 'DELETE' then
+        perform ordering.order_stats_apply(array_agg(order_status), array_agg(user_id), array_agg(created_at::date),
+                                           array_agg((id % 16)::smallint), array_agg(-1))
+        from old_rows;
+    else
+        perform ordering.order_stats_apply(array_agg(status), array_agg(user_id), array_agg(day),
+                                           array_agg(slot), array_agg(delta))
+        from (
+            select order_status as status, user_id, created_at::date as day, (id % 16)::smallint as slot, -1 as delta
+            from old_rows
+            union all
+            select order_status, user_id, created_at::date, (id % 16)::smallint, 1
+            from new_rows
+        ) changes;
+    end if;
+    return null;
+end
+$$;
+
+-- Первичное заполнение: блокируем запись в orders до конца миграции, чтобы не потерять изменения между
+-- заполнением и созданием триггеров.
+lock table ordering.orders in share mode;
+
+insert into ordering.order_status_counts (status, slot, count)
+select order_status, (id % 16)::smallint, count(*) from ordering.orders group by 1, 2;
+
+insert into ordering.order_user_status_counts (user_id, status, count)
+select user_id, order_status, count(*) from ordering.orders group by 1, 2;
+
+insert into ordering.order_daily_counts (day, slot, count)
+select created_at::date, (id % 16)::smallint, count(*) from ordering.orders group by 1, 2;
+
+create trigger order_stats_after_insert
+    after insert on ordering.orders
+    referencing new table as new_rows
+    for each statement execute function ordering.order_stats_on_change();
+
+create trigger order_stats_after_delete
+    after delete on ordering.orders
+    referencing old table as old_rows
+    for each statement execute function ordering.order_stats_on_change();
+
+create trigger order_stats_after_update
+    after update on ordering.orders
+    referencing old table as old_rows new table as new_rows
+    for each statement execute function ordering.order_stats_on_change();
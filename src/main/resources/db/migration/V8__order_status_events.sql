@@ -0,0 +1,80 @@
+-- История статусов для GET /api/v1/orders/{id}/history: append-only журнал, строки в который пишут триггеры
+-- на ordering.orders в той же транзакции, что и смену статуса. Приложение строки журнала не меняет и не удаляет,
+-- при удалении заказа его история остаётся.
+-- orders.status_changed_at - момент входа в текущий статус, по нему частичный индекс отвечает на запрос
+-- "заказы в статусе X с момента T" без сканирования orders и без поиска последнего события по журналу.
+
+create table if not exists ordering.order_status_events(
+    id bigint generated by default as identity primary key ,
+    order_id bigint not null ,
+    order_status varchar not null ,
+    changed_at timestamp not null
+);
+
+create index if not exists order_status_events_order_id_idx on ordering.order_status_events (order_id, id);
+
+alter table ordering.orders add column if not exists status_changed_at timestamp;
+
+-- BEFORE-триггер строки: момент смены статуса пишется в ту же строку, без отдельного UPDATE
+create or replace function ordering.order_status_changed_at() returns trigger
+language plpgsql as $$
+begin
+    if tg_op = 'INSERT' then
+        new.status_changed_at := coalesce(new.created_at, localtimestamp);
+    elsif new.order_status is distinct from old.order_status then
+        new.status_changed_at := coalesce(new.updated_at, localtimestamp);
+    else
+        new.status_changed_at := old.status_changed_at;
+    end if;
+    return new;
+end
+$$;
+
+-- Statement-level, как и счётчики из V7: batch-вставка пишет журнал одним INSERT ... SELECT на запрос
+create or replace function ordering.order_status_events_on_change() returns trigger
+language plpgsql as $$
+begin
+    if tg_op = 'INSERT' then
+        insert into ordering.order_status_events (order_id, order_status, changed_at)
+        select id, order_status, status_changed_at from new_rows order by id;
+    else
+        insert into ordering.order_status_events (order_id, order_status, changed_at)
+        select n.id, n.order_status, n.status_changed_at
+        from new_rows n
+        join old_rows o on o.id = n.id
+        where n.order_status is distinct from o.order_status
+        order by n.id;
+    end if;
+    return null;
+end
+$$;
+
+-- Первичное заполнение под блокировкой записи, как в V7. Статусы не меняются, поэтому счётчики из V7
+-- на время заполнения отключены, чтобы не пересчитывать их по всей таблице.
+lock table ordering.orders in share row exclusive mode;
+
+alter table ordering.orders disable trigger order_stats_after_update;
+update ordering.orders set status_changed_at = coalesce(updated_at, created_at) where status_changed_at is null;
+alter table ordering.orders enable trigger order_stats_after_update;
+
+insert into ordering.order_status_events (order_id, order_status, changed_at)
+select id, order_status, status_changed_at from ordering.orders order by id;
+
+-- Только незавершённые статусы: зависшие заказы ищут среди них, а DELIVERED и CANCELLED - большая часть таблицы.
+-- Список должен совпадать с OrderStatusHistoryServiceImpl.INDEXED_STATUSES.
+create index if not exists orders_status_since_idx on ordering.orders (order_status, status_changed_at)
+    where order_status in ('CREATED', 'PAID', 'SHIPPED');
+
+create trigger order_status_changed_at_before_write
+    before insert or update on ordering.orders
+    for each row execute function ordering.order_status_changed_at();
+
+create trigger order_status_events_after_insert
+    after insert on ordering.orders
+    referencing new table as new_rows
+    for each statement execute function ordering.order_status_events_on_change();
+
+create trigger order_status_events_after_update
+    after update on ordering.orders
+    referencing old table as old_rows new table as new_rows
+    for each statement execute function ordering.order_status_events_on_change();
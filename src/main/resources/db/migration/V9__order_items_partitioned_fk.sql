@@ -0,0 +1,65 @@
+-- Возвращает внешний ключ order_items -> orders, снятый V5 при партиционировании orders.
+-- Уникален у партиционированной orders только (id, created_at), поэтому ключ ссылается на пару:
+-- order_items.order_created_at заполняет триггер из заказа, приложение про колонку не знает.
+-- Индекс только по orders.id не нужен: первичный ключ (id, created_at) начинается с id и обслуживает поиск по нему.
+-- На непартиционированной orders старый внешний ключ на месте, миграция ничего не делает.
+
+do $$
+declare
+    orphans bigint;
+begin
+    if not exists (select 1
+                   from pg_class c
+                   join pg_namespace n on n.oid = c.relnamespace
+                   where n.nspname = 'ordering' and c.relname = 'orders' and c.relkind = 'p') then
+        return;
+    end if;
+
+    create or replace function ordering.order_items_set_order_created_at() returns trigger
+    language plpgsql as $fn$
+    begin
+        if new.order_id is null then
+            new.order_created_at := null;
+            return new;
+        end if;
+        if tg_op = 'UPDATE' and new.order_id = old.order_id and new.order_created_at is not null then
+            return new;
+        end if;
+
+        select created_at into new.order_created_at from ordering.orders where id = new.order_id;
+        -- без этой проверки null в order_created_at отключил бы внешний ключ (MATCH SIMPLE)
+        if not found then
+            raise foreign_key_violation using
+                message = format('order %s referenced by order item %s does not exist', new.order_id, new.id);
+        end if;
+        return new;
+    end
+    $fn$;
+
+    alter table ordering.order_items add column if not exists order_created_at timestamp;
+
+    -- запись в order_items блокируется до конца миграции, чтобы между заполнением и ключом не появились строки
+    lock table ordering.order_items in share row exclusive mode;
+
+    update ordering.order_items i
+    set order_created_at = o.created_at
+    from ordering.orders o
+    where o.id = i.order_id and i.order_created_at is null;
+
+    select count(*) into orphans
+    from ordering.order_items
+    where order_id is not null and order_created_at is null;
+    if orphans > 0 then
+        raise exception 'order_items has % rows without an order, remove them before this migration', orphans;
+    end if;
+
+    create trigger order_items_set_order_created_at
+        before insert or update of order_id on ordering.order_items
+        for each row execute function ordering.order_items_set_order_created_at();
+
+    -- on update cascade: перенос заказа в другую партицию при смене created_at не ломает ключ
+    alter table ordering.order_items
+        add constraint order_items_order_fkey foreign key (order_id, order_created_at)
+            references ordering.orders (id, created_at) on update cascade;
+end
+$$;
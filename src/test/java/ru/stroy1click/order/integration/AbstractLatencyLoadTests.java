@@ -0,0 +1,119 @@
+package ru.stroy1click.order.integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import ru.stroy1click.order.client.NotificationClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Нагрузка на непокэшированное чтение из базы: CONCURRENCY клиентов параллельно отправляют запросы,
+ * в лог пишется p50/p99 задержки, чтобы сравнить режимы на платформенных и виртуальных потоках.
+ * Ни один запрос не должен быть отклонён (ответ не 200, лимит запросов, таймаут ожидания соединения пула),
+ * p99 - не больше MAX_P99. Результат зависит от машины, поэтому тесты идут только с профилем heavy-tests.
+ */
+@Slf4j
+@Tag("heavy")
+abstract class AbstractLatencyLoadTests {
+
+    private static final int CONCURRENCY = 200;
+
+    private static final int REQUESTS = 4_000;
+
+    /**
+     * Запрос - выборка 10 строк по индексу, задержку под нагрузкой даёт в основном очередь за соединением пула
+     */
+    private static final Duration MAX_P99 = Duration.ofSeconds(1);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private NotificationClient notificationClient;
+
+    @BeforeEach
+    public void stubNotificationClient() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+    }
+
+    protected abstract String mode();
+
+    @Test
+    public void getAll_UnderLoad_ShouldKeepP99Latency() throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        // курсор задан, поэтому страница не берётся из кэша и запрос каждый раз идёт в базу
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://localhost:%d/api/v1/orders?size=10&cursor=0".formatted(this.port))
+        ).GET().build();
+        double rateLimitedBefore = rateLimited();
+        double connectionTimeoutsBefore = connectionTimeouts();
+
+        long[] latencies = new long[REQUESTS];
+        try (ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY)) {
+            List<Future<Integer>> statuses = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                int index = i;
+                statuses.add(clients.submit(() -> {
+                    long start = System.nanoTime();
+                    HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                    latencies[index] = System.nanoTime() - start;
+                    return response.statusCode();
+                }));
+            }
+            for (Future<Integer> status : statuses) {
+                Assertions.assertEquals(200, status.get());
+            }
+        }
+
+        Arrays.sort(latencies);
+        Duration p50 = Duration.ofNanos(latencies[REQUESTS / 2]);
+        Duration p99 = Duration.ofNanos(latencies[REQUESTS * 99 / 100]);
+        log.info("load test [{}]: requests={}, concurrency={}, p50={}ms, p99={}ms",
+                mode(), REQUESTS, CONCURRENCY, p50.toMillis(), p99.toMillis());
+
+        Assertions.assertEquals(rateLimitedBefore, rateLimited());
+        Assertions.assertEquals(connectionTimeoutsBefore, connectionTimeouts());
+        Assertions.assertTrue(p99.compareTo(MAX_P99) <= 0, mode() + ": p99 = " + p99.toMillis() + "ms");
+    }
+
+    private double rateLimited() {
+        return this.meterRegistry.get("order.rate.limit.requests")
+                .tag("bucket", "read")
+                .tag("result", "rejected")
+                .counter()
+                .count();
+    }
+
+    private double connectionTimeouts() {
+        return this.meterRegistry.find("hikaricp.connections.timeout").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+}
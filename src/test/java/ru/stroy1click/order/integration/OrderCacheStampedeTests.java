@@ -0,0 +1,111 @@
+package ru.stroy1click.order.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.entity.Order;
+import ru.stroy1click.order.entity.OrderItem;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.repository.OrderRepository;
+import ru.stroy1click.order.service.OrderService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * 500 одновременных промахов по одному ключу должны привести к одной загрузке из базы.
+ */
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // outbox-relay не должен добавлять свои запросы в статистику
+        "notification.outbox.poll-interval-ms=3600000"
+})
+class OrderCacheStampedeTests {
+
+    private static final Long USER_ID = 7_101L;
+
+    private static final int PARALLEL_MISSES = 500;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private NotificationClient notificationClient;
+
+    private QueryCounter queryCounter;
+
+    @BeforeEach
+    public void setUp() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+        this.queryCounter = new QueryCounter(this.entityManagerFactory);
+
+        if (this.orderRepository.findByUserId(USER_ID).isEmpty()) {
+            Order order = Order.builder()
+                    .notes("Заказ для проверки cache stampede")
+                    .orderStatus(OrderStatus.CREATED)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .contactPhone("+79001112233")
+                    .userId(USER_ID)
+                    .build();
+            order.setOrderItems(List.of(OrderItem.builder().productId(1).quantity(1).order(order).build()));
+            this.orderRepository.save(order);
+        }
+    }
+
+    @Test
+    public void getByUserId_ShouldLoadFromDatabaseOnce_When500RequestsMissConcurrently() {
+        evict();
+        long singleLoad = this.queryCounter.count(() -> this.orderService.getByUserId(USER_ID));
+        evict();
+
+        long parallelLoads = this.queryCounter.count(() -> {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<OrderDto>>> results = new ArrayList<>(PARALLEL_MISSES);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < PARALLEL_MISSES; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return this.orderService.getByUserId(USER_ID);
+                    }));
+                }
+                start.countDown();
+                for (Future<List<OrderDto>> result : results) {
+                    Assertions.assertEquals(1, result.get(30, TimeUnit.SECONDS).size());
+                }
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Assertions.assertEquals(singleLoad, parallelLoads);
+    }
+
+    private void evict() {
+        this.cacheManager.getCache("ordersByUserId").evict(USER_ID);
+    }
+}
@@ -0,0 +1,195 @@
+package ru.stroy1click.order.integration;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.dto.ExportFormat;
+import ru.stroy1click.order.service.OrderExportService;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Выгрузка на синтетических данных: 2,5 млн заказов по две позиции, то есть 5 млн строк join-а.
+ * Синтетические заказы лежат в 2019 году, чтобы не пересекаться с данными остальных тестов.
+ * Заполнение занимает минуты, поэтому тесты идут только с профилем heavy-tests.
+ */
+@Tag("heavy")
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        // общий async-таймаут MVC меньше любой выгрузки: выгрузки по HTTP должны жить по своему export.timeout
+        properties = "spring.mvc.async.request-timeout=" + OrderExportTests.DEFAULT_ASYNC_TIMEOUT_MILLIS
+)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderExportTests {
+
+    static final long DEFAULT_ASYNC_TIMEOUT_MILLIS = 1_000L;
+
+    private static final long ORDERS_COUNT = 2_500_000L;
+
+    private static final long ROWS_COUNT = ORDERS_COUNT * 2;
+
+    private static final long FIRST_ID = 200_000_000L;
+
+    private static final long LAST_ID = FIRST_ID + ORDERS_COUNT - 1;
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2019, 1, 1, 0, 0);
+
+    private static final LocalDateTime TO = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    /**
+     * На сколько может вырасти старое поколение heap во время выгрузки: на порядки меньше её несжатого объёма.
+     * Молодое поколение не учитывается - его пик определяется размером поколения, а не выгрузкой.
+     */
+    private static final long MAX_PEAK_OLD_GEN_GROWTH = 64L * 1024 * 1024;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @MockitoBean
+    private NotificationClient notificationClient;
+
+    @BeforeEach
+    public void stubNotificationClient() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+    }
+
+    @BeforeAll
+    public void fillTables() {
+        this.jdbcTemplate.update("""
+                insert into ordering.orders (id, notes, order_status, created_at, updated_at, contact_phone, user_id)
+                select i, 'Заказ ' || i, 'CREATED',
+                       timestamp '2019-01-01' + (i % 365) * interval '1 day',
+                       timestamp '2019-01-01' + (i % 365) * interval '1 day',
+                       '+79000000000', 2000000 + i % 100000
+                from generate_series(?, ?) i
+                """, FIRST_ID, LAST_ID);
+        this.jdbcTemplate.update("""
+                insert into ordering.order_items (id, quantity, product_id, order_id)
+                select i * 2 + k, 1, k + 1, i
+                from generate_series(?, ?) i, generate_series(0, 1) k
+                """, FIRST_ID, LAST_ID);
+        this.jdbcTemplate.execute("analyze ordering.orders");
+        this.jdbcTemplate.execute("analyze ordering.order_items");
+    }
+
+    @AfterAll
+    public void cleanTables() {
+        this.jdbcTemplate.update("delete from ordering.order_status_events where order_id between ? and ?", FIRST_ID, LAST_ID);
+        this.jdbcTemplate.update("delete from ordering.order_items where order_id between ? and ?", FIRST_ID, LAST_ID);
+        this.jdbcTemplate.update("delete from ordering.orders where id between ? and ?", FIRST_ID, LAST_ID);
+    }
+
+    @Test
+    public void export_Csv_ShouldStreamAllRowsWithConstantHeap(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve(ExportFormat.CSV.getFileName());
+        List<MemoryPoolMXBean> oldGen = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .filter(pool -> !pool.getName().matches(".*(Eden|Survivor|Young).*"))
+                .toList();
+        Assertions.assertFalse(oldGen.isEmpty());
+
+        ManagementFactory.getMemoryMXBean().gc();
+        long usedBefore = oldGen.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+        oldGen.forEach(MemoryPoolMXBean::resetPeakUsage);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            this.orderExportService.export(ExportFormat.CSV, null, FROM, TO, out);
+        }
+        long peakGrowth = oldGen.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum() - usedBefore;
+
+        Assertions.assertTrue(peakGrowth < MAX_PEAK_OLD_GEN_GROWTH, "old gen peak growth " + peakGrowth + " bytes");
+        Assertions.assertTrue(this.orderExportService.getRunning().isEmpty());
+
+        long lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            lines = reader.lines().count();
+        }
+        Assertions.assertEquals(ROWS_COUNT + 1, lines);
+    }
+
+    @Test
+    public void export_NdjsonOverHttp_ShouldReturnGzipAttachment() throws IOException {
+        ResponseEntity<byte[]> response = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/export?format=NDJSON&from={from}&to={to}",
+                byte[].class,
+                "2019-01-01T00:00:00",
+                "2019-01-02T00:00:00"
+        );
+
+        Assertions.assertTrue(response.getStatusCode().is2xxSuccessful());
+        Assertions.assertEquals("application/gzip", response.getHeaders().getContentType().toString());
+        Assertions.assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION)
+                .contains("orders.ndjson.gz"));
+
+        long expected = this.jdbcTemplate.queryForObject("""
+                select count(*) from ordering.orders
+                where id between ? and ? and created_at < timestamp '2019-01-02'
+                """, Long.class, FIRST_ID, LAST_ID);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(response.getBody())), StandardCharsets.UTF_8))) {
+            Assertions.assertEquals(expected, reader.lines().count());
+        }
+    }
+
+    @Test
+    public void export_CsvOverHttp_ShouldNotBeCutOffByDefaultAsyncTimeout() {
+        long startedAt = System.nanoTime();
+        Long lines = this.testRestTemplate.execute(
+                "/api/v1/orders/export?format=CSV&from={from}&to={to}",
+                HttpMethod.GET,
+                null,
+                response -> {
+                    Assertions.assertTrue(response.getStatusCode().is2xxSuccessful());
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                            new GZIPInputStream(response.getBody()), StandardCharsets.UTF_8))) {
+                        return reader.lines().count();
+                    }
+                },
+                "2019-01-01T00:00:00",
+                "2020-01-01T00:00:00"
+        );
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        Assertions.assertTrue(elapsedMillis > DEFAULT_ASYNC_TIMEOUT_MILLIS, "export took " + elapsedMillis + " ms");
+        Assertions.assertEquals(ROWS_COUNT + 1, lines);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.stroy1click.order.integration;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import ru.stroy1click.order.client.NotificationClient;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка планов запросов на объёме в 1 млн заказов: выборки по user_id и order_id
+ * должны идти по индексам, а не последовательным сканированием.
+ */
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderIndexesTests {
+
+    private static final long ORDERS_COUNT = 1_000_000L;
+
+    private static final long FIRST_ID = 100_000_000L;
+
+    private static final long LAST_ID = FIRST_ID + ORDERS_COUNT - 1;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private NotificationClient notificationClient;
+
+    @BeforeEach
+    public void stubNotificationClient() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+    }
+
+    @BeforeAll
+    public void fillTables() {
+        this.jdbcTemplate.update("""
+                insert into ordering.orders (id, notes, order_status, created_at, updated_at, contact_phone, user_id)
+                select i, 'Заказ ' || i, 'CREATED',
+                       timestamp '2020-01-01' + (i % 365) * interval '1 day',
+                       timestamp '2020-01-01' + (i % 365) * interval '1 day',
+                       '+79000000000', 1000000 + i % 100000
+                from generate_series(?, ?) i
+                """, FIRST_ID, LAST_ID);
+        this.jdbcTemplate.update("""
+                insert into ordering.order_items (id, quantity, product_id, order_id)
+                select i, 1, 1, i
+                from generate_series(?, ?) i
+                """, FIRST_ID, LAST_ID);
+        this.jdbcTemplate.execute("analyze ordering.orders");
+        this.jdbcTemplate.execute("analyze ordering.order_items");
+    }
+
+    @AfterAll
+    public void cleanTables() {
+        this.jdbcTemplate.update("delete from ordering.order_status_events where order_id between ? and ?", FIRST_ID, LAST_ID);
+        this.jdbcTemplate.update("delete from ordering.order_items where id between ? and ?", FIRST_ID, LAST_ID);
+        this.jdbcTemplate.update("delete from ordering.orders where id between ? and ?", FIRST_ID, LAST_ID);
+    }
+
+    @Test
+    public void findByUserId_ShouldUseUserIdCreatedAtIndex() {
+        String plan = explain("""
+                select * from ordering.orders
+                where user_id = 1012345
+                order by created_at desc
+                """);
+
+        Assertions.assertTrue(plan.contains("orders_user_id_created_at_idx"), plan);
+        Assertions.assertFalse(plan.contains("Seq Scan on orders"), plan);
+    }
+
+    @Test
+    public void findByUserIdAndPeriod_ShouldUseUserIdCreatedAtIndex() {
+        String plan = explain("""
+                select * from ordering.orders
+                where user_id = 1012345
+                  and created_at between timestamp '2020-03-01' and timestamp '2020-04-01'
+                """);
+
+        Assertions.assertTrue(plan.contains("orders_user_id_created_at_idx"), plan);
+    }
+
+    @Test
+    public void findItemsByOrderId_ShouldUseOrderIdIndex() {
+        String plan = explain("""
+                select * from ordering.order_items
+                where order_id in (100000010, 100000020, 100000030)
+                """);
+
+        Assertions.assertTrue(plan.contains("order_items_order_id_idx"), plan);
+        Assertions.assertFalse(plan.contains("Seq Scan on order_items"), plan);
+    }
+
+    private String explain(String sql) {
+        List<String> lines = this.jdbcTemplate.queryForList("explain " + sql, String.class);
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.stroy1click.order.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.repository.OrderPartitionRepository;
+import ru.stroy1click.order.service.OrderPartitionService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Миграции с orders_partitioning_enabled=true накатываются на отдельную базу: общая уже смигрирована без него.
+ * months-ahead больше года, который создаёт V5, поэтому дальние партиции может создать только задача по расписанию.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.flyway.placeholders.orders_partitioning_enabled=true",
+                "orders-partitioning.months-ahead=" + OrderPartitioningTests.MONTHS_AHEAD
+        }
+)
+class OrderPartitioningTests {
+
+    static final int MONTHS_AHEAD = 15;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderPartitionService orderPartitionService;
+
+    @MockitoBean
+    private NotificationClient notificationClient;
+
+    @DynamicPropertySource
+    static void partitionedDatabase(DynamicPropertyRegistry registry) {
+        String url = TestcontainersConfiguration.createDatabase("orders_partitioned");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", TestcontainersConfiguration::username);
+        registry.add("spring.datasource.password", TestcontainersConfiguration::password);
+        registry.add("spring.flyway.url", () -> url);
+    }
+
+    @BeforeEach
+    public void stubNotificationClient() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    public void createAhead_ShouldKeepPartitionsForMonthsAhead() {
+        this.orderPartitionService.createAhead();
+
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i <= MONTHS_AHEAD; i++) {
+            String partition = OrderPartitionRepository.name(currentMonth.plusMonths(i));
+            Assertions.assertEquals(Boolean.TRUE, this.jdbcTemplate.queryForObject(
+                    "select to_regclass(?) is not null", Boolean.class, "ordering." + partition
+            ), partition);
+        }
+        Assertions.assertEquals(0, this.orderPartitionService.createAhead());
+    }
+
+    @Test
+    public void create_ShouldStoreOrderInItsMonthPartition_NotInDefault() {
+        this.orderPartitionService.createAhead();
+        LocalDate lastMonth = LocalDate.now().withDayOfMonth(1).plusMonths(MONTHS_AHEAD);
+
+        OrderDto dto = OrderDto.builder()
+                .notes("Заказ в дальней партиции")
+                .orderStatus(OrderStatus.CREATED)
+                .createdAt(lastMonth.atTime(10, 0))
+                .updatedAt(LocalDateTime.now())
+                .orderItems(List.of(OrderItemDto.builder().productId(1).quantity(1).build()))
+                .contactPhone("+79001112233")
+                .userId(630L)
+                .build();
+        OrderDto created = this.testRestTemplate.postForEntity("/api/v1/orders", dto, OrderDto.class).getBody();
+        Assertions.assertNotNull(created);
+
+        Assertions.assertEquals("ordering." + OrderPartitionRepository.name(lastMonth), this.jdbcTemplate.queryForObject(
+                "select tableoid::regclass::text from ordering.orders where id = ?", String.class, created.getId()
+        ));
+        Assertions.assertEquals(created.getNotes(),
+                this.testRestTemplate.getForObject("/api/v1/orders/{id}", OrderDto.class, created.getId()).getNotes());
+
+        this.testRestTemplate.delete("/api/v1/orders/{id}", created.getId());
+    }
+}
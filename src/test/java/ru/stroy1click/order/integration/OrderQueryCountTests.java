@@ -0,0 +1,150 @@
+package ru.stroy1click.order.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderPatchDto;
+import ru.stroy1click.order.entity.Order;
+import ru.stroy1click.order.entity.OrderItem;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.mapper.OrderMapper;
+import ru.stroy1click.order.repository.OrderRepository;
+import ru.stroy1click.order.service.OrderService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Защита от N+1: количество запросов на чтение не должно зависеть от количества заказов.
+ */
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderQueryCountTests {
+
+    private static final Long USER_ID = 7_001L;
+
+    private static final int ORDERS_COUNT = 10;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private NotificationClient notificationClient;
+
+    private QueryCounter queryCounter;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    public void setUp() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+        this.queryCounter = new QueryCounter(this.entityManagerFactory);
+        this.readOnlyTransaction = new TransactionTemplate(this.transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        if (this.orderRepository.findByUserId(USER_ID).isEmpty()) {
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < ORDERS_COUNT; i++) {
+                orders.add(newOrder());
+            }
+            this.orderRepository.saveAll(orders);
+        }
+    }
+
+    @Test
+    public void getWithItems_ShouldExecuteSingleQuery() {
+        Long id = this.orderRepository.findByUserId(USER_ID).getFirst().getId();
+        AtomicReference<OrderDto> result = new AtomicReference<>();
+
+        this.queryCounter.assertQueryCount(1, () -> this.readOnlyTransaction.executeWithoutResult(status ->
+                result.set(this.orderMapper.toDto(this.orderRepository.findWithItemsById(id).orElseThrow()))
+        ));
+
+        Assertions.assertEquals(2, result.get().getOrderItems().size());
+    }
+
+    @Test
+    public void findByUserId_ShouldLoadItemsInOneBatch() {
+        AtomicReference<List<OrderDto>> result = new AtomicReference<>();
+
+        this.queryCounter.assertQueryCount(2, () -> this.readOnlyTransaction.executeWithoutResult(status ->
+                result.set(this.orderMapper.toDto(this.orderRepository.findByUserId(USER_ID)))
+        ));
+
+        Assertions.assertEquals(ORDERS_COUNT, result.get().size());
+        result.get().forEach(order -> Assertions.assertEquals(2, order.getOrderItems().size()));
+    }
+
+    @Test
+    public void findPage_ShouldLoadItemsInOneBatch() {
+        AtomicReference<List<OrderDto>> result = new AtomicReference<>();
+
+        this.queryCounter.assertQueryCount(2, () -> this.readOnlyTransaction.executeWithoutResult(status ->
+                result.set(this.orderMapper.toDto(this.orderRepository.findPage(
+                        null, OrderStatus.PAID, null, null, PageRequest.ofSize(ORDERS_COUNT)
+                )))
+        ));
+
+        Assertions.assertFalse(result.get().isEmpty());
+    }
+
+    @Test
+    public void update_ShouldExecuteSingleStatement() {
+        Order order = this.orderRepository.findByUserId(USER_ID).getFirst();
+        OrderPatchDto patch = OrderPatchDto.builder()
+                .notes("Обновлённый заказ")
+                .orderStatus(OrderStatus.PAID)
+                .contactPhone("+79001112233")
+                .version(order.getVersion())
+                .build();
+
+        this.queryCounter.assertQueryCount(1, () -> this.orderService.update(order.getId(), patch));
+    }
+
+    private Order newOrder() {
+        Order order = Order.builder()
+                .notes("Заказ для проверки количества запросов")
+                .orderStatus(OrderStatus.PAID)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .contactPhone("+79001112233")
+                .userId(USER_ID)
+                .build();
+
+        List<OrderItem> items = List.of(
+                OrderItem.builder().productId(1).quantity(1).order(order).build(),
+                OrderItem.builder().productId(2).quantity(2).order(order).build()
+        );
+        order.setOrderItems(items);
+
+        return order;
+    }
+}
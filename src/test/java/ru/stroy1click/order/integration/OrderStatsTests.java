@@ -0,0 +1,113 @@
+package ru.stroy1click.order.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.dto.OrderPatchDto;
+import ru.stroy1click.order.dto.OrderStatsDto;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Счётчики обновляются триггерами в той же транзакции, что и заказ.
+ */
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class OrderStatsTests {
+
+    private static final Long USER_ID = 620L;
+
+    private static final LocalDate DAY = LocalDate.of(2021, 6, 15);
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @MockitoBean
+    private NotificationClient notificationClient;
+
+    @BeforeEach
+    public void stubNotificationClient() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    public void stats_ShouldFollowCreateUpdateAndDelete() {
+        OrderStatsDto before = stats();
+
+        OrderDto dto = OrderDto.builder()
+                .notes("Заказ для статистики")
+                .orderStatus(OrderStatus.CREATED)
+                .createdAt(DAY.atTime(10, 0))
+                .updatedAt(LocalDateTime.now())
+                .orderItems(List.of(OrderItemDto.builder().productId(1).quantity(1).build()))
+                .contactPhone("+79001112233")
+                .userId(USER_ID)
+                .build();
+        OrderDto created = this.testRestTemplate.postForEntity("/api/v1/orders", dto, OrderDto.class).getBody();
+
+        OrderStatsDto afterCreate = stats();
+        Assertions.assertEquals(before.getByStatus().get(OrderStatus.CREATED) + 1,
+                afterCreate.getByStatus().get(OrderStatus.CREATED));
+        Assertions.assertEquals(before.getByUserStatus().get(OrderStatus.CREATED) + 1,
+                afterCreate.getByUserStatus().get(OrderStatus.CREATED));
+        Assertions.assertEquals(before.getByDay().get(DAY) + 1, afterCreate.getByDay().get(DAY));
+
+        OrderPatchDto patch = OrderPatchDto.builder()
+                .orderStatus(OrderStatus.PAID)
+                .version(created.getVersion())
+                .build();
+        this.testRestTemplate.exchange(
+                "/api/v1/orders/{id}", HttpMethod.PATCH, new HttpEntity<>(patch), String.class, created.getId()
+        );
+
+        OrderStatsDto afterUpdate = stats();
+        Assertions.assertEquals(before.getByUserStatus().get(OrderStatus.CREATED),
+                afterUpdate.getByUserStatus().get(OrderStatus.CREATED));
+        Assertions.assertEquals(before.getByUserStatus().get(OrderStatus.PAID) + 1,
+                afterUpdate.getByUserStatus().get(OrderStatus.PAID));
+        Assertions.assertEquals(afterCreate.getByDay().get(DAY), afterUpdate.getByDay().get(DAY));
+
+        this.testRestTemplate.delete("/api/v1/orders/{id}", created.getId());
+
+        OrderStatsDto afterDelete = stats();
+        Assertions.assertEquals(before.getByStatus(), afterDelete.getByStatus());
+        Assertions.assertEquals(before.getByUserStatus(), afterDelete.getByUserStatus());
+        Assertions.assertEquals(before.getByDay(), afterDelete.getByDay());
+    }
+
+    @Test
+    public void stats_ShouldReturnBadRequest_WhenPeriodIsTooLong() {
+        ResponseEntity<ProblemDetail> response = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/stats?from=2020-01-01&to=2025-01-01", ProblemDetail.class
+        );
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    private OrderStatsDto stats() {
+        return this.testRestTemplate.getForObject(
+                "/api/v1/orders/stats?userId={userId}&from={from}&to={to}",
+                OrderStatsDto.class, USER_ID, DAY.minusDays(1), DAY.plusDays(1)
+        );
+    }
+}
@@ -0,0 +1,131 @@
+package ru.stroy1click.order.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderInStatusDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.dto.OrderPatchDto;
+import ru.stroy1click.order.dto.OrderStatusEventDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.util.ETagUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Журнал статусов пишется триггерами в той же транзакции, что и заказ.
+ */
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class OrderStatusHistoryTests {
+
+    private static final Long USER_ID = 650L;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @MockitoBean
+    private NotificationClient notificationClient;
+
+    @BeforeEach
+    public void stubNotificationClient() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    public void history_ShouldContainOnlyStatusChanges() {
+        OrderDto created = create();
+
+        created.setOrderStatus(OrderStatus.PAID);
+        patch(created);
+        created.setNotes("Статус не меняется");
+        patch(created);
+        created.setOrderStatus(OrderStatus.SHIPPED);
+        patch(created);
+
+        OrderStatusEventDto[] history = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}/history", OrderStatusEventDto[].class, created.getId()
+        ).getBody();
+
+        Assertions.assertEquals(
+                List.of(OrderStatus.CREATED, OrderStatus.PAID, OrderStatus.SHIPPED),
+                Arrays.stream(history).map(OrderStatusEventDto::getOrderStatus).toList()
+        );
+        Assertions.assertEquals(created.getCreatedAt(), history[0].getChangedAt());
+    }
+
+    @Test
+    public void inStatus_ShouldReturnOrdersByCurrentStatus() {
+        OrderDto shipped = create();
+        shipped.setOrderStatus(OrderStatus.SHIPPED);
+        patch(shipped);
+
+        List<Long> shippedIds = inStatus(OrderStatus.SHIPPED);
+        List<Long> createdIds = inStatus(OrderStatus.CREATED);
+
+        Assertions.assertTrue(shippedIds.contains(shipped.getId()));
+        Assertions.assertFalse(createdIds.contains(shipped.getId()));
+    }
+
+    @Test
+    public void history_OfUnknownOrder_ShouldReturnNotFound() {
+        ResponseEntity<String> response = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}/history", String.class, 987_654_321L
+        );
+
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    private OrderDto create() {
+        OrderDto dto = OrderDto.builder()
+                .notes("Заказ для истории статусов")
+                .orderStatus(OrderStatus.CREATED)
+                .createdAt(LocalDateTime.of(2019, 3, 1, 9, 30))
+                .updatedAt(LocalDateTime.of(2019, 3, 1, 9, 30))
+                .orderItems(List.of(OrderItemDto.builder().productId(1).quantity(1).build()))
+                .contactPhone("+79001112233")
+                .userId(USER_ID)
+                .build();
+        return this.testRestTemplate.postForEntity("/api/v1/orders", dto, OrderDto.class).getBody();
+    }
+
+    /**
+     * Заказ меняется последовательно: версия для следующего изменения берётся из ETag ответа
+     */
+    private void patch(OrderDto orderDto) {
+        OrderPatchDto patch = OrderPatchDto.builder()
+                .notes(orderDto.getNotes())
+                .orderStatus(orderDto.getOrderStatus())
+                .version(orderDto.getVersion())
+                .build();
+        ResponseEntity<String> response = this.testRestTemplate.exchange(
+                "/api/v1/orders/{id}", HttpMethod.PATCH, new HttpEntity<>(patch), String.class, orderDto.getId()
+        );
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        orderDto.setVersion(ETagUtils.orderVersion(orderDto.getId(), response.getHeaders().getETag()));
+    }
+
+    private List<Long> inStatus(OrderStatus status) {
+        OrderInStatusDto[] orders = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/in-status?status={status}&size=1000", OrderInStatusDto[].class, status
+        ).getBody();
+        return Arrays.stream(orders).map(OrderInStatusDto::getOrderId).toList();
+    }
+}
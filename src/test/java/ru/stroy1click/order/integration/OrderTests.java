@@ -1,6 +1,7 @@
 package ru.stroy1click.order.integration;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -8,19 +9,37 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.*;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
 import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.dto.OrderBatchResultDto;
 import ru.stroy1click.order.dto.OrderDto;
 import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.dto.OrderPageDto;
+import ru.stroy1click.order.dto.OrderPatchDto;
 import ru.stroy1click.order.entity.OrderStatus;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 @Import({TestcontainersConfiguration.class})
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// TestRestTemplate ходит с loopback, как gateway: X-User-Id разводит тесты лимита по отдельным клиентам
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "rate-limit.trusted-proxies=127.0.0.1,0:0:0:0:0:0:0:1"
+)
 class OrderTests {
 
     @Autowired
@@ -29,6 +48,11 @@ class OrderTests {
     @MockitoBean
     private NotificationClient notificationClient;
 
+    @BeforeEach
+    public void stubNotificationClient() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+    }
+
     @Test
     public void getOrder_ShouldReturnOrderAndItems() {
         Long id = 1L;
@@ -46,21 +70,71 @@ class OrderTests {
     }
 
     @Test
-    public void getAll_ShouldReturnAllOrdersAndItems(){
-        ResponseEntity<OrderDto[]> response = this.testRestTemplate.getForEntity(
+    public void getAll_ShouldReturnFirstPageOfOrdersAndItems(){
+        ResponseEntity<OrderPageDto> response = this.testRestTemplate.getForEntity(
                 "/api/v1/orders",
-                OrderDto[].class
+                OrderPageDto.class
         );
 
         Assertions.assertTrue(response.getStatusCode().is2xxSuccessful());
         Assertions.assertNotNull(response.getBody());
-        Assertions.assertTrue(response.getBody().length != 0);
+        Assertions.assertFalse(response.getBody().getOrders().isEmpty());
     }
 
     @Test
-    public void createOrder_ShouldReturnSuccessfulMessage() {
-        doNothing().when(this.notificationClient).sendOrderNotification(any(OrderDto.class));
+    public void getAll_WithCursor_ShouldReturnOrdersAfterCursor(){
+        ResponseEntity<OrderPageDto> firstPage = this.testRestTemplate.getForEntity(
+                "/api/v1/orders?size=1",
+                OrderPageDto.class
+        );
+
+        Assertions.assertTrue(firstPage.getStatusCode().is2xxSuccessful());
+        Assertions.assertEquals(1, firstPage.getBody().getOrders().size());
+        Assertions.assertNotNull(firstPage.getBody().getNextCursor());
+
+        ResponseEntity<OrderPageDto> secondPage = this.testRestTemplate.getForEntity(
+                "/api/v1/orders?size=1&cursor={cursor}",
+                OrderPageDto.class,
+                firstPage.getBody().getNextCursor()
+        );
+
+        Assertions.assertTrue(secondPage.getStatusCode().is2xxSuccessful());
+        Assertions.assertTrue(
+                secondPage.getBody().getOrders().getFirst().getId() > firstPage.getBody().getOrders().getFirst().getId()
+        );
+    }
+
+    @Test
+    public void getAll_InvalidCursor_ShouldReturnProblemDetail(){
+        ResponseEntity<ProblemDetail> response = this.testRestTemplate.getForEntity(
+                "/api/v1/orders?cursor=abc",
+                ProblemDetail.class
+        );
 
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        Assertions.assertEquals("Некорректный курсор пагинации", response.getBody().getDetail());
+    }
+
+    @Test
+    public void stream_ShouldReturnOrdersAsNdjson(){
+        ResponseEntity<String> response = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/stream?from={from}&to={to}",
+                String.class,
+                "2024-10-01T00:00:00",
+                "2024-10-02T00:00:00"
+        );
+
+        Assertions.assertTrue(response.getStatusCode().is2xxSuccessful());
+        Assertions.assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+
+        String[] lines = response.getBody().split("\n");
+        Assertions.assertEquals(1, lines.length);
+        Assertions.assertTrue(lines[0].contains("\"id\":1"));
+        Assertions.assertTrue(lines[0].contains("\"productId\":25"));
+    }
+
+    @Test
+    public void createOrder_ShouldReturnSuccessfulMessage() {
         OrderItemDto item1 = OrderItemDto.builder().productId(33).quantity(3).build();
 
         OrderDto dto = OrderDto.builder()
@@ -79,30 +153,72 @@ class OrderTests {
 
         Assertions.assertEquals(HttpStatus.CREATED, response.getStatusCode());
         Assertions.assertEquals("Новый заказ для тестирования POST", response.getBody().getNotes());
+
+        // уведомление уходит из outbox после коммита
+        Long createdId = response.getBody().getId();
+        verify(this.notificationClient, timeout(5_000)).sendOrderNotifications(
+                argThat(orders -> orders.stream().anyMatch(order -> createdId.equals(order.getId())))
+        );
+    }
+
+    @Test
+    public void createBatch_ShouldCreateValidOrders_AndReportInvalid() {
+        OrderDto valid = OrderDto.builder()
+                .notes("Оптовый заказ")
+                .orderStatus(OrderStatus.CREATED)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .orderItems(List.of(
+                        OrderItemDto.builder().productId(40).quantity(100).build(),
+                        OrderItemDto.builder().productId(41).quantity(200).build()
+                ))
+                .contactPhone("+79001112233")
+                .userId(700L)
+                .build();
+        OrderDto invalid = OrderDto.builder()
+                .notes("Оптовый заказ с ошибкой")
+                .orderStatus(OrderStatus.CREATED)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .orderItems(List.of(OrderItemDto.builder().productId(40).quantity(1).build()))
+                .contactPhone("1234567")
+                .userId(700L)
+                .build();
+
+        ResponseEntity<OrderBatchResultDto[]> response = this.testRestTemplate.postForEntity(
+                "/api/v1/orders/batch",
+                List.of(valid, invalid, valid),
+                OrderBatchResultDto[].class
+        );
+
+        Assertions.assertTrue(response.getStatusCode().is2xxSuccessful());
+        OrderBatchResultDto[] results = response.getBody();
+        Assertions.assertEquals(3, results.length);
+        Assertions.assertNotNull(results[0].getId());
+        Assertions.assertNull(results[0].getError());
+        Assertions.assertNull(results[1].getId());
+        Assertions.assertEquals("Номер телефона должен быть валидным", results[1].getError());
+        Assertions.assertNotNull(results[2].getId());
+
+        ResponseEntity<OrderDto> created = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}", OrderDto.class, results[2].getId()
+        );
+        Assertions.assertEquals(2, created.getBody().getOrderItems().size());
     }
 
     @Test
     public void updateOrder_ShouldReturnOk_AndConfirmChange() {
         Long orderIdToUpdate = 2L;
+        String eTag = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}", OrderDto.class, orderIdToUpdate
+        ).getHeaders().getETag();
 
-        OrderDto updateDto = OrderDto.builder()
-                .id(orderIdToUpdate)
+        OrderPatchDto patch = OrderPatchDto.builder()
                 .notes("Заказ обновлен: статус изменен")
                 .orderStatus(OrderStatus.SHIPPED)
-                .createdAt(LocalDateTime.of(2024,9,15,12,0,0))
-                .updatedAt(LocalDateTime.now())
-                .orderItems(List.of())
-                .contactPhone("89241111111")
-                .userId(1L)
                 .build();
 
-        ResponseEntity<String> response = this.testRestTemplate.exchange(
-                        "/api/v1/orders/" + "/{id}",
-                        HttpMethod.PATCH,
-                        new HttpEntity<>(updateDto),
-                        String.class,
-                        orderIdToUpdate
-                );
+        ResponseEntity<String> response = patchWithIfMatch(orderIdToUpdate, patch, eTag, String.class);
 
         Assertions.assertTrue(response.getStatusCode().is2xxSuccessful());
         Assertions.assertEquals("Заказ обновлён", response.getBody());
@@ -114,6 +230,181 @@ class OrderTests {
         );
         Assertions.assertEquals(OrderStatus.SHIPPED, finalGetResponse.getBody().getOrderStatus());
         Assertions.assertEquals("Заказ обновлен: статус изменен", finalGetResponse.getBody().getNotes());
+        Assertions.assertEquals(finalGetResponse.getHeaders().getETag(), response.getHeaders().getETag());
+    }
+
+    @Test
+    public void updateOrder_WithStaleVersion_ShouldReturnConflict() {
+        OrderDto created = this.testRestTemplate.postForEntity(
+                "/api/v1/orders", orderForUser(610L), OrderDto.class
+        ).getBody();
+        Long readVersion = created.getVersion();
+
+        ResponseEntity<String> first = this.testRestTemplate.exchange(
+                "/api/v1/orders/{id}", HttpMethod.PATCH,
+                new HttpEntity<>(OrderPatchDto.builder().orderStatus(OrderStatus.PAID).version(readVersion).build()),
+                String.class, created.getId()
+        );
+        ResponseEntity<ProblemDetail> second = this.testRestTemplate.exchange(
+                "/api/v1/orders/{id}", HttpMethod.PATCH,
+                new HttpEntity<>(OrderPatchDto.builder().orderStatus(OrderStatus.CANCELLED).version(readVersion).build()),
+                ProblemDetail.class, created.getId()
+        );
+
+        Assertions.assertEquals(HttpStatus.OK, first.getStatusCode());
+        Assertions.assertEquals(HttpStatus.CONFLICT, second.getStatusCode());
+        Assertions.assertEquals("Конфликт изменений", second.getBody().getTitle());
+
+        OrderDto actual = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}", OrderDto.class, created.getId()
+        ).getBody();
+        Assertions.assertEquals(OrderStatus.PAID, actual.getOrderStatus());
+        Assertions.assertEquals(readVersion + 1, actual.getVersion());
+    }
+
+    @Test
+    public void updateOrder_ConcurrentWithSameVersion_ShouldApplyExactlyOne() throws Exception {
+        OrderDto created = this.testRestTemplate.postForEntity(
+                "/api/v1/orders", orderForUser(611L), OrderDto.class
+        ).getBody();
+        String eTag = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}", OrderDto.class, created.getId()
+        ).getHeaders().getETag();
+
+        List<OrderStatus> statuses = List.of(OrderStatus.PAID, OrderStatus.CANCELLED, OrderStatus.SHIPPED, OrderStatus.PAID);
+        List<Callable<ResponseEntity<String>>> patches = statuses.stream()
+                .<Callable<ResponseEntity<String>>>map(status -> () -> patchWithIfMatch(
+                        created.getId(), OrderPatchDto.builder().orderStatus(status).build(), eTag, String.class
+                ))
+                .toList();
+
+        List<HttpStatusCode> codes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(statuses.size())) {
+            for (Future<ResponseEntity<String>> future : executor.invokeAll(patches)) {
+                codes.add(future.get().getStatusCode());
+            }
+        }
+
+        Assertions.assertEquals(1, codes.stream().filter(code -> code == HttpStatus.OK).count(), codes.toString());
+        Assertions.assertEquals(statuses.size() - 1,
+                codes.stream().filter(code -> code == HttpStatus.CONFLICT).count(), codes.toString());
+
+        OrderDto actual = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}", OrderDto.class, created.getId()
+        ).getBody();
+        Assertions.assertEquals(created.getVersion() + 1, actual.getVersion());
+    }
+
+    @Test
+    public void updateOrder_WithoutVersion_ShouldReturnPreconditionRequired() {
+        OrderDto created = this.testRestTemplate.postForEntity(
+                "/api/v1/orders", orderForUser(612L), OrderDto.class
+        ).getBody();
+
+        ResponseEntity<ProblemDetail> response = this.testRestTemplate.exchange(
+                "/api/v1/orders/{id}", HttpMethod.PATCH,
+                new HttpEntity<>(OrderPatchDto.builder().orderStatus(OrderStatus.PAID).build()),
+                ProblemDetail.class, created.getId()
+        );
+
+        Assertions.assertEquals(HttpStatus.PRECONDITION_REQUIRED, response.getStatusCode());
+        Assertions.assertEquals(OrderStatus.CREATED, this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}", OrderDto.class, created.getId()
+        ).getBody().getOrderStatus());
+    }
+
+    @Test
+    public void updateOrder_OnlyNotes_ShouldKeepOtherFields() {
+        OrderDto created = this.testRestTemplate.postForEntity(
+                "/api/v1/orders", orderForUser(613L), OrderDto.class
+        ).getBody();
+
+        ResponseEntity<String> response = this.testRestTemplate.exchange(
+                "/api/v1/orders/{id}", HttpMethod.PATCH,
+                new HttpEntity<>(OrderPatchDto.builder().notes("Только комментарий").version(created.getVersion()).build()),
+                String.class, created.getId()
+        );
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        OrderDto actual = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}", OrderDto.class, created.getId()
+        ).getBody();
+        Assertions.assertEquals("Только комментарий", actual.getNotes());
+        Assertions.assertEquals(OrderStatus.CREATED, actual.getOrderStatus());
+        Assertions.assertEquals(created.getContactPhone(), actual.getContactPhone());
+        Assertions.assertEquals(created.getUserId(), actual.getUserId());
+    }
+
+    @Test
+    public void getOrder_WithMatchingETag_ShouldReturnNotModified_UntilOrderChanges() {
+        OrderDto created = this.testRestTemplate.postForEntity(
+                "/api/v1/orders", orderForUser(630L), OrderDto.class
+        ).getBody();
+
+        ResponseEntity<OrderDto> first = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/{id}", OrderDto.class, created.getId()
+        );
+        String eTag = first.getHeaders().getETag();
+        Assertions.assertNotNull(eTag);
+
+        ResponseEntity<OrderDto> notModified = getWithETag("/api/v1/orders/" + created.getId(), eTag, OrderDto.class);
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        Assertions.assertNull(notModified.getBody());
+
+        patchWithIfMatch(created.getId(), OrderPatchDto.builder().orderStatus(OrderStatus.PAID).build(),
+                eTag, String.class);
+
+        ResponseEntity<OrderDto> modified = getWithETag("/api/v1/orders/" + created.getId(), eTag, OrderDto.class);
+        Assertions.assertEquals(HttpStatus.OK, modified.getStatusCode());
+        Assertions.assertEquals(OrderStatus.PAID, modified.getBody().getOrderStatus());
+        Assertions.assertNotEquals(eTag, modified.getHeaders().getETag());
+    }
+
+    @Test
+    public void getByUserId_WithMatchingETag_ShouldReturnNotModified_UntilNewOrder() {
+        this.testRestTemplate.postForEntity("/api/v1/orders", orderForUser(631L), OrderDto.class);
+
+        ResponseEntity<OrderDto[]> first = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/user?userId=631", OrderDto[].class
+        );
+        String eTag = first.getHeaders().getETag();
+        Assertions.assertNotNull(eTag);
+
+        // отпечаток из базы должен совпасть с ETag, посчитанным по телу
+        ResponseEntity<OrderDto[]> notModified = getWithETag("/api/v1/orders/user?userId=631", eTag, OrderDto[].class);
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+
+        this.testRestTemplate.postForEntity("/api/v1/orders", orderForUser(631L), OrderDto.class);
+
+        ResponseEntity<OrderDto[]> modified = getWithETag("/api/v1/orders/user?userId=631", eTag, OrderDto[].class);
+        Assertions.assertEquals(HttpStatus.OK, modified.getStatusCode());
+        Assertions.assertEquals(2, modified.getBody().length);
+    }
+
+    @Test
+    public void getPageByUserId_ShouldPageFromNewestToOldest() {
+        for (int day = 1; day <= 3; day++) {
+            OrderDto dto = orderForUser(640L);
+            dto.setCreatedAt(LocalDateTime.of(2024, 5, day, 10, 0));
+            dto.setOrderStatus(day == 2 ? OrderStatus.PAID : OrderStatus.CREATED);
+            this.testRestTemplate.postForEntity("/api/v1/orders", dto, OrderDto.class);
+        }
+
+        OrderPageDto first = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/user/page?userId=640&size=2", OrderPageDto.class
+        ).getBody();
+        OrderPageDto second = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/user/page?userId=640&size=2&cursor={cursor}", OrderPageDto.class, first.getNextCursor()
+        ).getBody();
+        OrderPageDto paid = this.testRestTemplate.getForEntity(
+                "/api/v1/orders/user/page?userId=640&status=PAID", OrderPageDto.class
+        ).getBody();
+
+        Assertions.assertEquals(List.of(3, 2), days(first));
+        Assertions.assertEquals(List.of(1), days(second));
+        Assertions.assertNull(second.getNextCursor());
+        Assertions.assertEquals(1, paid.getOrders().size());
+        Assertions.assertEquals(OrderStatus.PAID, paid.getOrders().getFirst().getOrderStatus());
     }
 
     @Test
@@ -237,26 +528,15 @@ class OrderTests {
     @Test
     public void updateOrder_NotFound_ShouldReturnProblemDetail() {
         Long nonExistentId = 9999L;
-        OrderItemDto item = OrderItemDto.builder()
-                .productId(10)
-                .quantity(1)
-                .build();
-
-        OrderDto updatedDto = OrderDto.builder()
-                .id(1L)
-                .notes("Тест невалидного количество товаров")
-                .orderStatus(OrderStatus.CREATED)
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .orderItems(List.of(item))
-                .contactPhone("89241111111")
-                .userId(600L)
+        OrderPatchDto patch = OrderPatchDto.builder()
+                .notes("Тест несуществующего заказа")
+                .version(0L)
                 .build();
 
         ResponseEntity<ProblemDetail> response = this.testRestTemplate.exchange(
                 "/api/v1/orders/" + nonExistentId,
                 HttpMethod.PATCH,
-                new HttpEntity<>(updatedDto),
+                new HttpEntity<>(patch),
                 ProblemDetail.class,
                 nonExistentId
         );
@@ -264,4 +544,132 @@ class OrderTests {
         Assertions.assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         Assertions.assertEquals("Не найдено", response.getBody().getTitle());
     }
+
+    @Test
+    public void prometheus_ShouldExposeOrderMetrics() {
+        this.testRestTemplate.getForEntity("/api/v1/orders", OrderPageDto.class);
+        this.testRestTemplate.getForEntity("/api/v1/orders/user?userId=1", OrderDto[].class);
+
+        ResponseEntity<String> response = this.testRestTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        Assertions.assertTrue(response.getStatusCode().is2xxSuccessful());
+        Assertions.assertTrue(response.getBody().contains("order_service_seconds_count"));
+        Assertions.assertTrue(response.getBody().contains("order_cache_get_seconds_count"));
+        Assertions.assertTrue(response.getBody().contains("order_mapper_rows_count"));
+        Assertions.assertTrue(response.getBody().contains("executor_queued_tasks{"));
+        Assertions.assertTrue(response.getBody().contains("order_rate_limit_requests_total"));
+    }
+
+    @Test
+    public void createOrder_OverWriteLimit_ShouldReturnTooManyRequestsWithRetryAfter() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-User-Id", "rate-limit-test");
+        // пустой заказ отклоняется валидацией без обращения к базе, поэтому запросы быстрые
+        HttpEntity<OrderDto> request = new HttpEntity<>(new OrderDto(), headers);
+
+        ResponseEntity<ProblemDetail> response = null;
+        for (int i = 0; i < 200; i++) {
+            response = this.testRestTemplate.postForEntity("/api/v1/orders", request, ProblemDetail.class);
+            if (response.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) break;
+        }
+
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        Assertions.assertNotNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals("Превышено максимальное количество запросов", response.getBody().getTitle());
+    }
+
+    @Test
+    public void createOrder_RetryWithSameIdempotencyKey_ShouldReturnFirstOrder() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+        HttpEntity<OrderDto> request = new HttpEntity<>(orderForUser(660L), headers);
+
+        ResponseEntity<OrderDto> first = this.testRestTemplate.postForEntity("/api/v1/orders", request, OrderDto.class);
+        ResponseEntity<OrderDto> retry = this.testRestTemplate.postForEntity("/api/v1/orders", request, OrderDto.class);
+
+        Assertions.assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        Assertions.assertEquals("false", first.getHeaders().getFirst("Idempotent-Replayed"));
+        Assertions.assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        Assertions.assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        Assertions.assertEquals(first.getBody().getId(), retry.getBody().getId());
+        Assertions.assertEquals(first.getHeaders().getLocation(), retry.getHeaders().getLocation());
+        Assertions.assertEquals(1, userOrdersCount(660L));
+    }
+
+    @Test
+    public void createOrder_ConcurrentRequestsWithSameIdempotencyKey_ShouldCreateOneOrder() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+        HttpEntity<OrderDto> request = new HttpEntity<>(orderForUser(661L), headers);
+
+        Callable<ResponseEntity<OrderDto>> post =
+                () -> this.testRestTemplate.postForEntity("/api/v1/orders", request, OrderDto.class);
+
+        List<ResponseEntity<OrderDto>> responses;
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<ResponseEntity<OrderDto>>> futures = executor.invokeAll(Collections.nCopies(4, post));
+            responses = new ArrayList<>();
+            for (Future<ResponseEntity<OrderDto>> future : futures) {
+                responses.add(future.get());
+            }
+        }
+
+        Assertions.assertTrue(responses.stream().allMatch(response -> response.getStatusCode() == HttpStatus.CREATED));
+        Assertions.assertEquals(1, responses.stream().map(response -> response.getBody().getId()).distinct().count());
+        Assertions.assertEquals(1, userOrdersCount(661L));
+    }
+
+    @Test
+    public void createOrder_SameIdempotencyKeyWithOtherBody_ShouldReturnConflict() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+
+        ResponseEntity<OrderDto> first = this.testRestTemplate.postForEntity(
+                "/api/v1/orders", new HttpEntity<>(orderForUser(662L), headers), OrderDto.class
+        );
+        ResponseEntity<ProblemDetail> other = this.testRestTemplate.postForEntity(
+                "/api/v1/orders", new HttpEntity<>(orderForUser(663L), headers), ProblemDetail.class
+        );
+
+        Assertions.assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        Assertions.assertEquals(HttpStatus.CONFLICT, other.getStatusCode());
+        Assertions.assertEquals("Idempotency-Key уже использован для запроса с другим телом", other.getBody().getDetail());
+    }
+
+    private <T> ResponseEntity<T> getWithETag(String url, String eTag, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return this.testRestTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), type);
+    }
+
+    private <T> ResponseEntity<T> patchWithIfMatch(Long id, OrderPatchDto patch, String eTag, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(eTag);
+        return this.testRestTemplate.exchange(
+                "/api/v1/orders/{id}", HttpMethod.PATCH, new HttpEntity<>(patch, headers), type, id
+        );
+    }
+
+    private List<Integer> days(OrderPageDto page) {
+        return page.getOrders().stream()
+                .map(orderDto -> orderDto.getCreatedAt().getDayOfMonth())
+                .toList();
+    }
+
+    private int userOrdersCount(Long userId) {
+        return this.testRestTemplate.getForEntity("/api/v1/orders/user?userId=" + userId, OrderDto[].class)
+                .getBody().length;
+    }
+
+    private OrderDto orderForUser(Long userId) {
+        return OrderDto.builder()
+                .notes("Заказ для проверки ETag")
+                .orderStatus(OrderStatus.CREATED)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .orderItems(List.of(OrderItemDto.builder().productId(5).quantity(1).build()))
+                .contactPhone("+79001112233")
+                .userId(userId)
+                .build();
+    }
 }
@@ -0,0 +1,30 @@
+package ru.stroy1click.order.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+
+/**
+ * Считает SQL-запросы, подготовленные Hibernate во время выполнения action.
+ * Требует spring.jpa.properties.hibernate.generate_statistics=true.
+ */
+class QueryCounter {
+
+    private final Statistics statistics;
+
+    QueryCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    long count(Runnable action) {
+        this.statistics.clear();
+        action.run();
+        return this.statistics.getPrepareStatementCount();
+    }
+
+    void assertQueryCount(long expected, Runnable action) {
+        long actual = count(action);
+        Assertions.assertEquals(expected, actual, "Неожиданное количество SQL-запросов");
+    }
+}
@@ -0,0 +1,133 @@
+package ru.stroy1click.order.integration;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.datasource.ReadYourWrites;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * pg_is_in_recovery() = true только на реплике, по нему видно, куда ушёл запрос.
+ * Реплику подключает только этот контекст. Синхронная репликация включена на время класса,
+ * чтобы проверки маршрутизации не зависели от лага; чтение своей записи проверяется при асинхронной.
+ */
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest
+class ReadReplicaRoutingTests {
+
+    private static final String IN_RECOVERY = "select pg_is_in_recovery()";
+
+    private static final long WRITTEN_ORDER_ID = 424_243L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @MockitoBean
+    private NotificationClient notificationClient;
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("datasource.replica.urls", TestcontainersConfiguration::replicaJdbcUrl);
+    }
+
+    @BeforeAll
+    static void enableSynchronousReplication() {
+        TestcontainersConfiguration.synchronousReplication(true);
+    }
+
+    @AfterAll
+    static void disableSynchronousReplication() {
+        TestcontainersConfiguration.synchronousReplication(false);
+    }
+
+    @BeforeEach
+    public void stubNotificationClient() {
+        when(this.notificationClient.sendOrderNotifications(anyList())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    public void readOnlyTransaction_ShouldGoToReplica() {
+        Assertions.assertEquals(Boolean.TRUE, transaction(true).execute(status ->
+                this.jdbcTemplate.queryForObject(IN_RECOVERY, Boolean.class)
+        ));
+    }
+
+    @Test
+    public void readWriteTransaction_ShouldGoToPrimary() {
+        Assertions.assertEquals(Boolean.FALSE, transaction(false).execute(status ->
+                this.jdbcTemplate.queryForObject(IN_RECOVERY, Boolean.class)
+        ));
+    }
+
+    @Test
+    public void readOnlyTransaction_ShouldGoToPrimary_AfterRecentWrite() {
+        String key = ReadYourWrites.orderKey(424_242L);
+        this.readYourWrites.written(List.of(key));
+
+        Assertions.assertEquals(Boolean.FALSE, transaction(true).execute(status ->
+                this.readYourWrites.read(key, () -> this.jdbcTemplate.queryForObject(IN_RECOVERY, Boolean.class))
+        ));
+    }
+
+    @Test
+    public void readOnlyTransaction_ShouldSeeOwnWrite_UnderAsyncReplication() {
+        TestcontainersConfiguration.synchronousReplication(false);
+        // реплика не применяет WAL, поэтому гарантированно не видит запись ниже
+        TestcontainersConfiguration.replicaReplayPaused(true);
+        try {
+            String key = ReadYourWrites.orderKey(WRITTEN_ORDER_ID);
+            transaction(false).executeWithoutResult(status -> {
+                this.jdbcTemplate.update("""
+                        insert into ordering.orders (id, notes, order_status, created_at, updated_at, contact_phone, user_id)
+                        values (?, 'Заказ', 'CREATED', now(), now(), '+79000000000', 1)
+                        """, WRITTEN_ORDER_ID);
+                this.readYourWrites.written(List.of(key));
+            });
+
+            Assertions.assertEquals(Long.valueOf(0), transaction(true).execute(status -> countWrittenOrder()));
+            Assertions.assertEquals(Long.valueOf(1), transaction(true).execute(status ->
+                    this.readYourWrites.read(key, this::countWrittenOrder)
+            ));
+        } finally {
+            TestcontainersConfiguration.replicaReplayPaused(false);
+            TestcontainersConfiguration.synchronousReplication(true);
+            this.jdbcTemplate.update("delete from ordering.order_status_events where order_id = ?", WRITTEN_ORDER_ID);
+            this.jdbcTemplate.update("delete from ordering.orders where id = ?", WRITTEN_ORDER_ID);
+        }
+    }
+
+    private Long countWrittenOrder() {
+        return this.jdbcTemplate.queryForObject(
+                "select count(*) from ordering.orders where id = ?", Long.class, WRITTEN_ORDER_ID
+        );
+    }
+
+    private TransactionTemplate transaction(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate;
+    }
+}
@@ -0,0 +1,91 @@
+package ru.stroy1click.order.integration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.stroy1click.order.Stroy1ClickOrderServiceApplication;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Время старта сервиса до ApplicationReadyEvent: обычная конфигурация и быстрая, как в prod
+ * (ленивые бины, без springdoc). Контейнеры поднимает TestcontainersConfiguration ещё до замеров,
+ * а первый запуск прогревает JVM, поэтому в замер входит только подъём контекста.
+ * Каждая конфигурация стартует несколько раз поочерёдно, сравниваются лучшие времена - так
+ * единичная пауза GC или JIT не решает исход. AOT и CDS здесь не проверяются: им нужен собранный jar.
+ */
+@Slf4j
+class StartupTimeTests {
+
+    private static final Duration MAX_FAST_STARTUP = Duration.ofSeconds(20);
+
+    private static final int RUNS = 3;
+
+    private static final String[] FAST_START_ARGS = {
+            "--spring.main.lazy-initialization=true",
+            "--springdoc.api-docs.enabled=false",
+            "--springdoc.swagger-ui.enabled=false"
+    };
+
+    @Test
+    public void fastStart_ShouldStartWithinBudget_AndDeferNonCriticalBeans() {
+        start().close();
+
+        long regularNanos = Long.MAX_VALUE;
+        long fastNanos = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            regularNanos = Math.min(regularNanos, measureStart(context -> {
+                Assertions.assertTrue(context.getBeanFactory().containsSingleton("orderExportServiceImpl"));
+                Assertions.assertTrue(context.containsBean("openApiConfig"));
+            }));
+
+            fastNanos = Math.min(fastNanos, measureStart(context -> {
+                // инфраструктура поднята на старте, остальное - при первом обращении
+                Assertions.assertTrue(context.getBeanFactory().containsSingleton("primaryDataSource"));
+                Assertions.assertTrue(context.getBeanFactory().containsSingleton("entityManagerFactory"));
+                Assertions.assertTrue(context.getBeanFactory().containsSingleton("redissonClient"));
+                Assertions.assertFalse(context.getBeanFactory().containsSingleton("orderExportServiceImpl"));
+                Assertions.assertFalse(context.containsBean("openApiConfig"));
+            }, FAST_START_ARGS));
+        }
+
+        long regularMillis = Duration.ofNanos(regularNanos).toMillis();
+        long fastMillis = Duration.ofNanos(fastNanos).toMillis();
+        log.info("startup: regular {} ms, fast {} ms", regularMillis, fastMillis);
+        Assertions.assertTrue(fastNanos < regularNanos,
+                "fast startup " + fastMillis + " ms is not faster than regular " + regularMillis + " ms");
+        Assertions.assertTrue(fastNanos < MAX_FAST_STARTUP.toNanos(), "fast startup took " + fastMillis + " ms");
+    }
+
+    /**
+     * @return время от запуска до готового контекста; проверки выполняются после замера
+     */
+    private long measureStart(Consumer<ConfigurableApplicationContext> check, String... args) {
+        long startedAt = System.nanoTime();
+        try (ConfigurableApplicationContext context = start(args)) {
+            long nanos = System.nanoTime() - startedAt;
+            check.accept(context);
+            return nanos;
+        }
+    }
+
+    /**
+     * Контекст запускается без TestcontainersConfiguration: при закрытии он остановил бы общие контейнеры.
+     * Outbox отключён таймером, чтобы не забирать уведомления других тестов.
+     */
+    private ConfigurableApplicationContext start(String... args) {
+        String[] allArgs = Stream.of(
+                        TestcontainersConfiguration.connectionArgs(),
+                        new String[]{"--server.port=0", "--notification.outbox.poll-interval-ms=3600000"},
+                        args
+                )
+                .flatMap(Stream::of)
+                .toArray(String[]::new);
+
+        return new SpringApplicationBuilder(Stroy1ClickOrderServiceApplication.class).run(allArgs);
+    }
+}
@@ -5,29 +5,142 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.context.annotation.Bean;
 import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
 import org.testcontainers.containers.PostgreSQLContainer;
-import org.testcontainers.utility.DockerImageName;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 @TestConfiguration(proxyBeanMethods = false)
 class TestcontainersConfiguration {
 
     private static final GenericContainer<?> REDIS;
     private static final PostgreSQLContainer<?> POSTGRES;
+    private static final GenericContainer<?> POSTGRES_REPLICA;
 
     static {
+        Network network = Network.newNetwork();
+
         REDIS = new GenericContainer<>("redis:6.2")
                 .withExposedPorts(6379);
 
         POSTGRES = new PostgreSQLContainer<>("postgres:15.13")
+                .withNetwork(network)
+                .withNetworkAliases("postgres-primary")
+                // реплика подключается к primary по протоколу репликации
+                .withCopyToContainer(
+                        Transferable.of("echo 'host replication all all trust' >> \"$PGDATA/pg_hba.conf\""),
+                        "/docker-entrypoint-initdb.d/00-replication.sh"
+                )
                 .withInitScript("init.sql");
 
+        // физическая реплика: снимок primary через pg_basebackup и потоковая репликация (-R)
+        POSTGRES_REPLICA = new GenericContainer<>("postgres:15.13")
+                .withNetwork(network)
+                .withExposedPorts(5432)
+                .withCommand("bash", "-c", """
+                        until gosu postgres pg_basebackup -h postgres-primary -U test \
+                            -D /var/lib/postgresql/data/replica -R -X stream; do sleep 1; done
+                        exec gosu postgres postgres -D /var/lib/postgresql/data/replica
+                        """)
+                .waitingFor(Wait.forLogMessage(".*database system is ready to accept read-only connections.*", 1));
+
         REDIS.start();
         POSTGRES.start();
+        POSTGRES_REPLICA.start();
 
         System.setProperty("redisson.host", REDIS.getHost());
         System.setProperty("redisson.port", REDIS.getMappedPort(6379).toString());
         System.setProperty("spring.data.redis.host", REDIS.getHost());
         System.setProperty("spring.data.redis.port", REDIS.getMappedPort(6379).toString());
+        // миграции (V2+) должны накатываться на схему из init.sql, а не на локальную базу из application.yml
+        System.setProperty("spring.flyway.url", POSTGRES.getJdbcUrl());
+        System.setProperty("spring.flyway.user", POSTGRES.getUsername());
+        System.setProperty("spring.flyway.password", POSTGRES.getPassword());
+    }
+
+    /**
+     * jdbc-url реплики. Приложение читает с неё только в контексте, который сам задаёт datasource.replica.urls
+     * (ReadReplicaRoutingTests), остальные тесты читают с primary и не зависят от лага репликации.
+     */
+    static String replicaJdbcUrl() {
+        return "jdbc:postgresql://%s:%d/%s".formatted(
+                POSTGRES_REPLICA.getHost(), POSTGRES_REPLICA.getMappedPort(5432), POSTGRES.getDatabaseName()
+        );
+    }
+
+    /**
+     * Синхронная репликация: коммит на primary ждёт применения на реплике. Настройка общая для всего primary,
+     * поэтому включивший её тест выключает её за собой.
+     */
+    static void synchronousReplication(boolean enabled) {
+        if (enabled) {
+            execute(POSTGRES.getJdbcUrl(),
+                    "alter system set synchronous_standby_names = '*'",
+                    "alter system set synchronous_commit = 'remote_apply'",
+                    "select pg_reload_conf()");
+        } else {
+            execute(POSTGRES.getJdbcUrl(),
+                    "alter system reset synchronous_standby_names",
+                    "alter system reset synchronous_commit",
+                    "select pg_reload_conf()");
+        }
+    }
+
+    /**
+     * Останавливает или возобновляет применение WAL на реплике: пока оно остановлено, реплика отстаёт
+     * от primary на все новые коммиты. Останавливать можно только при асинхронной репликации,
+     * иначе коммиты на primary будут ждать реплику.
+     */
+    static void replicaReplayPaused(boolean paused) {
+        execute(replicaJdbcUrl(), paused ? "select pg_wal_replay_pause()" : "select pg_wal_replay_resume()");
+    }
+
+    /**
+     * Пустая база на том же primary для контекста, которому нужны миграции с другими плейсхолдерами.
+     * Такой контекст не импортирует эту конфигурацию: @ServiceConnection подключил бы его к общей базе.
+     *
+     * @return jdbc-url новой базы
+     */
+    static String createDatabase(String name) {
+        execute(POSTGRES.getJdbcUrl(), "drop database if exists " + name, "create database " + name);
+        return "jdbc:postgresql://%s:%d/%s".formatted(POSTGRES.getHost(), POSTGRES.getMappedPort(5432), name);
+    }
+
+    static String username() {
+        return POSTGRES.getUsername();
+    }
+
+    static String password() {
+        return POSTGRES.getPassword();
+    }
+
+    private static void execute(String jdbcUrl, String... sqls) {
+        try (Connection connection = DriverManager.getConnection(
+                jdbcUrl, POSTGRES.getUsername(), POSTGRES.getPassword());
+             Statement statement = connection.createStatement()) {
+            for (String sql : sqls) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Подключение к primary для приложений, которые тест запускает сам, без test context и @ServiceConnection.
+     * Redis и Flyway берутся из системных свойств выше.
+     */
+    static String[] connectionArgs() {
+        return new String[]{
+                "--spring.datasource.url=" + POSTGRES.getJdbcUrl(),
+                "--spring.datasource.username=" + POSTGRES.getUsername(),
+                "--spring.datasource.password=" + POSTGRES.getPassword()
+        };
     }
 
     @Bean
@@ -39,8 +152,8 @@ class TestcontainersConfiguration {
     @PreDestroy
     public void cleanup() {
         REDIS.stop();
+        POSTGRES_REPLICA.stop();
         POSTGRES.stop();
     }
 
 }
-
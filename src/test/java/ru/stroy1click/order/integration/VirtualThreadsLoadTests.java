@@ -0,0 +1,23 @@
+package ru.stroy1click.order.integration;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Нагрузочный тест на виртуальных потоках.
+ */
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.threads.virtual.enabled=true",
+                "rate-limit.read.limit-for-period=1000000"
+        }
+)
+class VirtualThreadsLoadTests extends AbstractLatencyLoadTests {
+
+    @Override
+    protected String mode() {
+        return "virtual threads";
+    }
+}
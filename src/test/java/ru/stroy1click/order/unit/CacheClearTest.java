@@ -0,0 +1,64 @@
+package ru.stroy1click.order.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.stroy1click.order.cache.CacheClear;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheClearTest {
+
+    private CacheManager cacheManager;
+
+    private CacheClear cacheClear;
+
+    @BeforeEach
+    public void setUp() {
+        this.cacheManager = new ConcurrentMapCacheManager(
+                "ordersByUserId", "ordersByUserIdFirstPage", "userOrdersFingerprint", "orderVersion"
+        );
+        this.cacheClear = new CacheClear(this.cacheManager);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void clear_ShouldKeepETagCachesUntilCommit() {
+        this.cacheManager.getCache("ordersByUserId").put(7L, "orders");
+        this.cacheManager.getCache("userOrdersFingerprint").put(7L, "fingerprint");
+        this.cacheManager.getCache("orderVersion").put(1L, 4L);
+
+        this.cacheClear.clearOrdersByUserId(7L);
+        this.cacheClear.clearOrderVersion(1L);
+
+        // до коммита опрос с If-None-Match видит старое значение и не может закэшировать его заново
+        assertNull(this.cacheManager.getCache("ordersByUserId").get(7L));
+        assertEquals("fingerprint", this.cacheManager.getCache("userOrdersFingerprint").get(7L).get());
+        assertEquals(4L, this.cacheManager.getCache("orderVersion").get(1L).get());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertNull(this.cacheManager.getCache("userOrdersFingerprint").get(7L));
+        assertNull(this.cacheManager.getCache("orderVersion").get(1L));
+    }
+
+    @Test
+    public void clear_ShouldNotEvictETagCaches_WhenTransactionRolledBack() {
+        this.cacheManager.getCache("orderVersion").put(1L, 4L);
+
+        this.cacheClear.clearOrderVersion(1L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(4L, this.cacheManager.getCache("orderVersion").get(1L).get());
+    }
+}
@@ -0,0 +1,264 @@
+package ru.stroy1click.order.unit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import ru.stroy1click.order.client.impl.NotificationClientImpl;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.exception.ServiceUnavailableException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Клиент уведомлений против локальной заглушки сервиса уведомлений.
+ */
+@Slf4j
+class NotificationClientTest {
+
+    private static final int NOTIFICATIONS_COUNT = 1_000;
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final int MAX_CONCURRENCY = 4;
+
+    private static final int SERVER_THREADS = 16;
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private AtomicInteger singleRequests;
+
+    private AtomicInteger batchRequests;
+
+    private AtomicBoolean batchSupported;
+
+    private AtomicInteger inFlight;
+
+    private AtomicInteger maxInFlight;
+
+    private volatile long responseDelayMillis;
+
+    private volatile int singleStatus;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private MeterRegistry meterRegistry;
+
+    private NotificationClientImpl notificationClient;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.singleRequests = new AtomicInteger();
+        this.batchRequests = new AtomicInteger();
+        this.batchSupported = new AtomicBoolean(true);
+
+        this.inFlight = new AtomicInteger();
+        this.maxInFlight = new AtomicInteger();
+        this.responseDelayMillis = 0;
+        this.singleStatus = 200;
+
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.serverExecutor = Executors.newFixedThreadPool(SERVER_THREADS);
+        this.server.setExecutor(this.serverExecutor);
+        this.server.createContext("/api/v1/notifications", exchange -> {
+            this.singleRequests.incrementAndGet();
+            this.maxInFlight.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(this.responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.inFlight.decrementAndGet();
+            respond(exchange, this.singleStatus);
+        });
+        this.server.createContext("/api/v1/notifications/batch", exchange -> {
+            this.batchRequests.incrementAndGet();
+            respond(exchange, this.batchSupported.get() ? 200 : 404);
+        });
+        this.server.start();
+
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .build());
+        this.notificationClient = client(Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.notificationClient.close();
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void sendOrderNotifications_ShouldSendOneRequestPerBatch() {
+        List<OrderDto> orders = orders(NOTIFICATIONS_COUNT);
+
+        long batchedNanos = measure(() -> {
+            for (int i = 0; i < orders.size(); i += BATCH_SIZE) {
+                this.notificationClient.sendOrderNotifications(orders.subList(i, i + BATCH_SIZE)).block();
+            }
+        });
+        long singleNanos = measure(() -> orders.forEach(
+                order -> this.notificationClient.sendOrderNotification(order).block()
+        ));
+
+        assertEquals(NOTIFICATIONS_COUNT / BATCH_SIZE, this.batchRequests.get());
+        assertEquals(NOTIFICATIONS_COUNT, this.singleRequests.get());
+        log.info("notifications/s: batched {}, single {}",
+                NOTIFICATIONS_COUNT * 1_000_000_000L / batchedNanos,
+                NOTIFICATIONS_COUNT * 1_000_000_000L / singleNanos);
+    }
+
+    @Test
+    public void sendOrderNotifications_ShouldFallBackToSingleSends_WhenBatchRejected() {
+        this.batchSupported.set(false);
+
+        this.notificationClient.sendOrderNotifications(orders(3)).block();
+        this.notificationClient.sendOrderNotifications(orders(2)).block();
+
+        // после отказа пачки больше не отправляются, пока не истечёт интервал повтора
+        assertEquals(1, this.batchRequests.get());
+        assertEquals(5, this.singleRequests.get());
+        assertEquals(1, requests("batch", "rejected"));
+        assertEquals(5, requests("single", "success"));
+    }
+
+    @Test
+    public void sendOrderNotifications_SingleSends_ShouldRunConcurrentlyUpToLimit() {
+        this.batchSupported.set(false);
+        this.responseDelayMillis = 50;
+
+        this.notificationClient.sendOrderNotifications(orders(MAX_CONCURRENCY * 3)).block();
+
+        assertEquals(MAX_CONCURRENCY * 3, this.singleRequests.get());
+        assertTrue(this.maxInFlight.get() > 1, "max in flight " + this.maxInFlight.get());
+        assertTrue(this.maxInFlight.get() <= MAX_CONCURRENCY, "max in flight " + this.maxInFlight.get());
+    }
+
+    @Test
+    public void sendOrderNotification_NoResponseInReadTimeout_ShouldThrowServiceUnavailableException() {
+        this.notificationClient.close();
+        this.notificationClient = client(Duration.ofMillis(100));
+        this.responseDelayMillis = 1_000;
+
+        assertThrows(ServiceUnavailableException.class,
+                () -> this.notificationClient.sendOrderNotification(orders(1).getFirst()).block());
+        assertEquals(1, requests("single", "error"));
+    }
+
+    @Test
+    public void sendOrderNotification_ServiceFailing_ShouldOpenCircuitBreaker() {
+        this.singleStatus = 503;
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class,
+                    () -> this.notificationClient.sendOrderNotification(orders(1).getFirst()).block());
+        }
+
+        assertThrows(CallNotPermittedException.class,
+                () -> this.notificationClient.sendOrderNotification(orders(1).getFirst()).block());
+        assertEquals(4, this.singleRequests.get());
+    }
+
+    @Test
+    public void sendOrderNotification_ShouldReturnBeforeResponse() {
+        this.responseDelayMillis = 1_000;
+
+        CompletableFuture<Void> sending = this.notificationClient.sendOrderNotification(orders(1).getFirst()).toFuture();
+
+        assertFalse(sending.isDone());
+        sending.join();
+        assertEquals(1, this.singleRequests.get());
+        assertEquals(1, requests("single", "success"));
+    }
+
+    @Test
+    public void sendOrderNotification_WithoutSubscription_ShouldNotSend() throws InterruptedException {
+        this.notificationClient.sendOrderNotification(orders(1).getFirst());
+        this.notificationClient.sendOrderNotifications(orders(2));
+
+        Thread.sleep(200);
+        assertEquals(0, this.singleRequests.get());
+        assertEquals(0, this.batchRequests.get());
+    }
+
+    private NotificationClientImpl client(Duration readTimeout) {
+        return new NotificationClientImpl(
+                "http://localhost:%d/api/v1/notifications".formatted(this.server.getAddress().getPort()),
+                WebClient.builder(),
+                this.circuitBreakerRegistry,
+                this.meterRegistry,
+                Duration.ofSeconds(1),
+                readTimeout,
+                MAX_CONCURRENCY * 2,
+                MAX_CONCURRENCY,
+                false
+        );
+    }
+
+    private long requests(String type, String outcome) {
+        return this.meterRegistry.get("notification.client.requests")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+
+    private long measure(Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        return Math.max(System.nanoTime() - start, 1);
+    }
+
+    private List<OrderDto> orders(int count) {
+        List<OrderDto> orders = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            orders.add(OrderDto.builder()
+                    .id(i)
+                    .notes("Заказ " + i)
+                    .orderStatus(OrderStatus.CREATED)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .orderItems(List.of())
+                    .contactPhone("+79001112233")
+                    .userId(1L)
+                    .build());
+        }
+        return orders;
+    }
+
+    private void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+}
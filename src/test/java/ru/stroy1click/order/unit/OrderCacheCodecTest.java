@@ -0,0 +1,125 @@
+package ru.stroy1click.order.unit;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.Kryo5Codec;
+import ru.stroy1click.order.cache.CachedValue;
+import ru.stroy1click.order.cache.OrderCacheCodec;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.entity.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderCacheCodecTest {
+
+    private final Kryo5Codec kryo5Codec = new Kryo5Codec();
+
+    private final OrderCacheCodec codec = new OrderCacheCodec(this.kryo5Codec);
+
+    @Test
+    public void roundTrip_ShouldKeepOrderDto() throws Exception {
+        OrderDto orderDto = order(1);
+
+        assertEquals(orderDto, roundTrip(orderDto));
+    }
+
+    @Test
+    public void roundTrip_ShouldKeepNullFields() throws Exception {
+        OrderDto orderDto = OrderDto.builder()
+                .id(5L)
+                .orderStatus(OrderStatus.CANCELLED)
+                .orderItems(List.of(OrderItemDto.builder().productId(3).build()))
+                .build();
+
+        assertEquals(orderDto, roundTrip(orderDto));
+    }
+
+    @Test
+    public void roundTrip_ShouldKeepLargeCompressedList() throws Exception {
+        List<OrderDto> orders = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            orders.add(order(i));
+        }
+        CachedValue cachedValue = new CachedValue(orders, 1_700_000_000_000L, 12);
+
+        assertEquals(cachedValue, roundTrip(cachedValue));
+    }
+
+    @Test
+    public void roundTrip_ShouldDelegateUnknownTypes() throws Exception {
+        assertEquals("plain string", roundTrip("plain string"));
+        assertNull(roundTrip(null));
+    }
+
+    @Test
+    public void decode_ShouldTreatForeignFormatAsMiss() throws Exception {
+        ByteBuf kryoEncoded = this.kryo5Codec.getValueEncoder().encode(order(1));
+
+        assertNull(this.codec.getValueDecoder().decode(kryoEncoded, null));
+        kryoEncoded.release();
+    }
+
+    @Test
+    public void encode_ShouldBeSmallerThanDefaultCodec() throws Exception {
+        List<OrderDto> orders = List.of(order(1), order(2), order(3));
+
+        int compact = size(this.codec, new CachedValue(orders, 1_700_000_000_000L, 12));
+        int kryo = size(this.kryo5Codec, new CachedValue(orders, 1_700_000_000_000L, 12));
+
+        assertTrue(compact < kryo, "compact " + compact + " bytes, kryo " + kryo + " bytes");
+    }
+
+    @Test
+    public void encode_ShouldBeSeveralTimesSmallerThanDefaultCodec_WhenCompressed() throws Exception {
+        List<OrderDto> orders = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            orders.add(order(i));
+        }
+
+        int compact = size(this.codec, new CachedValue(orders, 1_700_000_000_000L, 12));
+        int kryo = size(this.kryo5Codec, new CachedValue(orders, 1_700_000_000_000L, 12));
+
+        assertTrue(compact * 3 < kryo, "compact " + compact + " bytes, kryo " + kryo + " bytes");
+    }
+
+    private Object roundTrip(Object value) throws Exception {
+        ByteBuf encoded = this.codec.getValueEncoder().encode(value);
+        try {
+            return this.codec.getValueDecoder().decode(encoded, null);
+        } finally {
+            encoded.release();
+        }
+    }
+
+    private int size(Codec codec, Object value) throws Exception {
+        ByteBuf encoded = codec.getValueEncoder().encode(value);
+        try {
+            return encoded.readableBytes();
+        } finally {
+            encoded.release();
+        }
+    }
+
+    private OrderDto order(long id) {
+        return OrderDto.builder()
+                .id(id)
+                .notes("Заказ №" + id + ", доставка до подъезда")
+                .orderStatus(OrderStatus.PAID)
+                .createdAt(LocalDateTime.of(2024, 10, 1, 10, 0, 15, 123_000_000))
+                .updatedAt(LocalDateTime.of(2024, 10, 2, 11, 30))
+                .orderItems(List.of(
+                        OrderItemDto.builder().id(id * 10 + 1).productId(101).quantity(2).build(),
+                        OrderItemDto.builder().id(id * 10 + 2).productId(202).quantity(1).build()
+                ))
+                .contactPhone("+79101234567")
+                .userId(500 + id)
+                .version(3L)
+                .build();
+    }
+}
@@ -0,0 +1,164 @@
+package ru.stroy1click.order.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.stroy1click.order.dto.ExportFormat;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.repository.OrderJdbcRepository;
+import ru.stroy1click.order.service.impl.OrderExportServiceImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+class OrderExportTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    @Mock
+    private OrderJdbcRepository orderJdbcRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OrderExportServiceImpl orderExportService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.orderExportService = new OrderExportServiceImpl(
+                this.orderJdbcRepository, new ObjectMapper().findAndRegisterModules(), this.meterRegistry
+        );
+    }
+
+    @Test
+    public void export_Csv_ShouldWriteRowPerItemAndEscapeNotes() throws IOException {
+        stream(order(1L, "Позвонить, \"до\" обеда\nзаранее", 2), order(2L, "Без позиций", 0));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.orderExportService.export(ExportFormat.CSV, null, null, null, out);
+
+        String csv = gunzip(out.toByteArray());
+        assertEquals("""
+                order_id,user_id,order_status,created_at,updated_at,contact_phone,notes,version,item_id,product_id,quantity
+                1,600,CREATED,2025-03-01T10:00,2025-03-01T10:00,+79001112233,"Позвонить, ""до"" обеда
+                заранее",0,10,20,1
+                1,600,CREATED,2025-03-01T10:00,2025-03-01T10:00,+79001112233,"Позвонить, ""до"" обеда
+                заранее",0,11,21,2
+                2,600,CREATED,2025-03-01T10:00,2025-03-01T10:00,+79001112233,Без позиций,0,,,
+                """, csv);
+        assertEquals(2.0, this.meterRegistry.get("order.export.orders").tag("format", "csv").counter().count());
+    }
+
+    @Test
+    public void export_Ndjson_ShouldWriteOrderPerLine() throws IOException {
+        stream(order(1L, "Первый", 1), order(2L, "Второй", 3));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.orderExportService.export(ExportFormat.NDJSON, OrderStatus.CREATED, null, null, out);
+
+        String[] lines = gunzip(out.toByteArray()).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[1].contains("\"productId\":22"));
+    }
+
+    @Test
+    public void stream_ShouldWriteSameNdjsonAsExportWithoutCompression() throws IOException {
+        stream(order(1L, "Первый", 1), order(2L, "Второй", 3));
+
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        this.orderExportService.export(ExportFormat.NDJSON, null, null, null, exported);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        this.orderExportService.stream(null, null, null, streamed);
+
+        assertEquals(gunzip(exported.toByteArray()), streamed.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void export_ShouldNotCloseOutputStreamAndForgetFinishedExport() throws IOException {
+        stream(order(1L, "Первый", 1));
+        boolean[] closed = {false};
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        this.orderExportService.export(ExportFormat.CSV, null, null, null, out);
+
+        assertFalse(closed[0]);
+        assertTrue(this.orderExportService.getRunning().isEmpty());
+        assertEquals(2, gunzip(out.toByteArray()).split("\n").length);
+    }
+
+    @Test
+    public void getRunning_ShouldReportProgressDuringExport() {
+        List<List<Long>> progress = new ArrayList<>();
+        doAnswer(invocation -> {
+            Consumer<OrderDto> consumer = invocation.getArgument(3);
+            consumer.accept(order(1L, "Первый", 2));
+            this.orderExportService.getRunning()
+                    .forEach(running -> progress.add(List.of(running.getOrders(), running.getRows())));
+            return null;
+        }).when(this.orderJdbcRepository).streamAll(any(), any(), any(), any());
+
+        this.orderExportService.export(ExportFormat.CSV, null, null, null, new ByteArrayOutputStream());
+
+        assertEquals(List.of(List.of(1L, 2L)), progress);
+    }
+
+    private void stream(OrderDto... orders) {
+        doAnswer(invocation -> {
+            Consumer<OrderDto> consumer = invocation.getArgument(3);
+            for (OrderDto order : orders) {
+                consumer.accept(order);
+            }
+            return null;
+        }).when(this.orderJdbcRepository).streamAll(any(), any(), any(), any());
+    }
+
+    private static OrderDto order(Long id, String notes, int items) {
+        return OrderDto.builder()
+                .id(id)
+                .notes(notes)
+                .orderStatus(OrderStatus.CREATED)
+                .createdAt(CREATED_AT)
+                .updatedAt(CREATED_AT)
+                .contactPhone("+79001112233")
+                .userId(600L)
+                .version(0L)
+                .orderItems(IntStream.range(0, items)
+                        .mapToObj(i -> OrderItemDto.builder()
+                                .id(10L + i)
+                                .productId(20 + i)
+                                .quantity(i + 1)
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package ru.stroy1click.order.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisConnectionException;
+import org.redisson.client.codec.Codec;
+import org.springframework.context.MessageSource;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.exception.ConflictException;
+import ru.stroy1click.order.exception.ValidationException;
+import ru.stroy1click.order.idempotency.OrderIdempotencyStore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderIdempotencyTest {
+
+    private static final Duration TTL = Duration.ofHours(24);
+
+    private static final Duration IN_FLIGHT_TTL = Duration.ofSeconds(30);
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RBucket<String> bucket;
+
+    @Mock
+    private MessageSource messageSource;
+
+    private OrderIdempotencyStore orderIdempotencyStore;
+
+    private final AtomicInteger creates = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(this.redissonClient.<String>getBucket(anyString(), any(Codec.class))).thenReturn(this.bucket);
+        when(this.messageSource.getMessage(anyString(), any(), any())).thenReturn("Ошибка");
+        this.orderIdempotencyStore = new OrderIdempotencyStore(
+                this.redissonClient, new ObjectMapper().findAndRegisterModules(), this.messageSource,
+                new SimpleMeterRegistry(), TTL, IN_FLIGHT_TTL, Duration.ofSeconds(1)
+        );
+    }
+
+    @Test
+    public void create_FirstRequest_ShouldCreateAndStoreResult() {
+        when(this.bucket.setIfAbsent(anyString(), eq(IN_FLIGHT_TTL))).thenReturn(true);
+
+        OrderIdempotencyStore.Result result = this.orderIdempotencyStore.create("key-1", request(), this::createOrder);
+
+        assertFalse(result.replayed());
+        assertEquals(100L, result.order().getId());
+        assertEquals(1, this.creates.get());
+        verify(this.bucket).set(contains("\"id\":100"), eq(TTL));
+    }
+
+    @Test
+    public void create_Replay_ShouldReturnStoredOrderWithoutCreating() {
+        String completed = completedValue();
+        when(this.bucket.setIfAbsent(anyString(), any(Duration.class))).thenReturn(false);
+        when(this.bucket.get()).thenReturn(completed);
+
+        OrderIdempotencyStore.Result result = this.orderIdempotencyStore.create("key-1", request(), this::createOrder);
+
+        assertTrue(result.replayed());
+        assertEquals(100L, result.order().getId());
+        assertEquals(1, this.creates.get());
+    }
+
+    @Test
+    public void create_WhileFirstInFlight_ShouldWaitForItsResult() {
+        String[] values = inFlightAndCompletedValues();
+        when(this.bucket.setIfAbsent(anyString(), any(Duration.class))).thenReturn(false);
+        when(this.bucket.get()).thenReturn(values[0], values[0], values[1]);
+
+        OrderIdempotencyStore.Result result = this.orderIdempotencyStore.create("key-1", request(), this::createOrder);
+
+        assertTrue(result.replayed());
+        assertEquals(100L, result.order().getId());
+        assertEquals(1, this.creates.get());
+        verify(this.bucket, times(3)).get();
+    }
+
+    @Test
+    public void create_WhileFirstInFlightTooLong_ShouldThrowConflictException() {
+        String inFlight = inFlightAndCompletedValues()[0];
+        when(this.bucket.setIfAbsent(anyString(), any(Duration.class))).thenReturn(false);
+        when(this.bucket.get()).thenReturn(inFlight);
+
+        assertThrows(ConflictException.class,
+                () -> this.orderIdempotencyStore.create("key-1", request(), this::createOrder));
+        assertEquals(1, this.creates.get());
+    }
+
+    @Test
+    public void create_SameKeyWithOtherBody_ShouldThrowConflictException() {
+        String completed = completedValue();
+        when(this.bucket.setIfAbsent(anyString(), any(Duration.class))).thenReturn(false);
+        when(this.bucket.get()).thenReturn(completed);
+
+        OrderDto otherRequest = request();
+        otherRequest.setNotes("Другой заказ");
+
+        assertThrows(ConflictException.class,
+                () -> this.orderIdempotencyStore.create("key-1", otherRequest, this::createOrder));
+    }
+
+    @Test
+    public void create_FailedCreate_ShouldReleaseKey() {
+        when(this.bucket.setIfAbsent(anyString(), any(Duration.class))).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> this.orderIdempotencyStore.create("key-1", request(), () -> {
+            throw new IllegalStateException("db is down");
+        }));
+        verify(this.bucket).delete();
+        verify(this.bucket, never()).set(anyString(), any(Duration.class));
+    }
+
+    @Test
+    public void create_RedisUnavailable_ShouldCreateWithoutKey() {
+        when(this.bucket.setIfAbsent(anyString(), any(Duration.class)))
+                .thenThrow(new RedisConnectionException("connection refused"));
+
+        OrderIdempotencyStore.Result result = this.orderIdempotencyStore.create("key-1", request(), this::createOrder);
+
+        assertFalse(result.replayed());
+        assertEquals(1, this.creates.get());
+    }
+
+    @Test
+    public void create_BlankKey_ShouldThrowValidationException() {
+        assertThrows(ValidationException.class,
+                () -> this.orderIdempotencyStore.create(" ", request(), this::createOrder));
+        verifyNoInteractions(this.bucket);
+    }
+
+    /**
+     * Значение ключа после первого запроса: хэш тела считает сам store, поэтому берём его из Redis-вызова.
+     */
+    private String completedValue() {
+        return inFlightAndCompletedValues()[1];
+    }
+
+    private String[] inFlightAndCompletedValues() {
+        RBucket<String> firstBucket = mock();
+        when(this.redissonClient.<String>getBucket(anyString(), any(Codec.class)))
+                .thenReturn(firstBucket)
+                .thenReturn(this.bucket);
+        when(firstBucket.setIfAbsent(anyString(), any(Duration.class))).thenReturn(true);
+
+        this.orderIdempotencyStore.create("key-1", request(), this::createOrder);
+
+        ArgumentCaptor<String> inFlight = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> completed = ArgumentCaptor.forClass(String.class);
+        verify(firstBucket).setIfAbsent(inFlight.capture(), any(Duration.class));
+        verify(firstBucket).set(completed.capture(), any(Duration.class));
+        return new String[]{inFlight.getValue(), completed.getValue()};
+    }
+
+    private OrderDto createOrder() {
+        this.creates.incrementAndGet();
+        OrderDto created = request();
+        created.setId(100L);
+        created.setVersion(0L);
+        return created;
+    }
+
+    private static OrderDto request() {
+        return OrderDto.builder()
+                .notes("Повтор после таймаута")
+                .orderStatus(OrderStatus.CREATED)
+                .createdAt(LocalDateTime.of(2025, 3, 1, 10, 0))
+                .updatedAt(LocalDateTime.of(2025, 3, 1, 10, 0))
+                .orderItems(List.of(OrderItemDto.builder().productId(7).quantity(2).build()))
+                .contactPhone("+79001112233")
+                .userId(600L)
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+package ru.stroy1click.order.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.*;
+import org.redisson.client.codec.Codec;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.stroy1click.order.cache.OrderCacheCodec;
+import ru.stroy1click.order.cache.OrderListCache;
+import ru.stroy1click.order.dto.OrderDto;
+import ru.stroy1click.order.entity.Order;
+import ru.stroy1click.order.mapper.OrderMapper;
+import ru.stroy1click.order.repository.OrderJdbcRepository;
+import ru.stroy1click.order.repository.OrderRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderListCacheTest {
+
+    private static final Long ID = 1L;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RScoredSortedSet<Long> ids;
+
+    @Mock
+    private RMap<Long, OrderDto> orders;
+
+    @Mock
+    private RBucket<Boolean> bucket;
+
+    @Mock
+    private RSet<Long> dirty;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Содержимое hash заказов в Redis.
+     */
+    private final Map<Long, OrderDto> cached = new HashMap<>();
+
+    private OrderListCache orderListCache;
+
+    @BeforeEach
+    public void setUp() {
+        when(this.redissonClient.<Long>getScoredSortedSet(anyString(), any(Codec.class))).thenReturn(this.ids);
+        when(this.redissonClient.<Long, OrderDto>getMap(anyString(), any(Codec.class))).thenReturn(this.orders);
+        when(this.redissonClient.<Boolean>getBucket(anyString())).thenReturn(this.bucket);
+        when(this.redissonClient.<Long>getSet(anyString(), any(Codec.class))).thenReturn(this.dirty);
+        when(this.orders.compute(eq(ID), any())).thenAnswer(invocation ->
+                this.cached.compute(ID, invocation.getArgument(1))
+        );
+
+        this.orderListCache = new OrderListCache(
+                this.redissonClient,
+                mock(OrderCacheCodec.class),
+                mock(OrderJdbcRepository.class),
+                this.orderRepository,
+                this.orderMapper,
+                new TransactionTemplate(this.transactionManager),
+                mock(AsyncTaskExecutor.class),
+                true
+        );
+        this.cached.put(ID, order(4L, "Старый комментарий", "+79000000000"));
+    }
+
+    @Test
+    public void patchAfterCommit_ShouldApplyPatch_WhenItIsNextVersion() {
+        this.orderListCache.patchAfterCommit(ID, 5L, order -> {
+            order.setNotes("Новый комментарий");
+            order.setVersion(5L);
+            return order;
+        });
+
+        assertEquals(5L, this.cached.get(ID).getVersion());
+        assertEquals("Новый комментарий", this.cached.get(ID).getNotes());
+        verifyNoInteractions(this.orderRepository);
+    }
+
+    @Test
+    public void patchAfterCommit_ShouldReloadFromPrimary_WhenPatchesComeOutOfOrder() {
+        Order order = Order.builder().id(ID).build();
+        when(this.ids.contains(ID)).thenReturn(true);
+        when(this.orderRepository.findById(ID)).thenReturn(Optional.of(order));
+        when(this.orderMapper.toDto(order)).thenAnswer(invocation ->
+                order(6L, "Новый комментарий", "+79111111111")
+        );
+
+        // v6 меняет телефон, v5 - комментарий; afterCommit v6 выполнился раньше v5
+        this.orderListCache.patchAfterCommit(ID, 6L, cachedOrder -> {
+            cachedOrder.setContactPhone("+79111111111");
+            cachedOrder.setVersion(6L);
+            return cachedOrder;
+        });
+        this.orderListCache.patchAfterCommit(ID, 5L, cachedOrder -> {
+            cachedOrder.setNotes("Новый комментарий");
+            cachedOrder.setVersion(5L);
+            return cachedOrder;
+        });
+
+        OrderDto result = this.cached.get(ID);
+        assertEquals(6L, result.getVersion());
+        assertEquals("Новый комментарий", result.getNotes());
+        assertEquals("+79111111111", result.getContactPhone());
+        verify(this.orderRepository, times(2)).findById(ID);
+    }
+
+    private static OrderDto order(Long version, String notes, String contactPhone) {
+        return OrderDto.builder()
+                .id(ID)
+                .notes(notes)
+                .contactPhone(contactPhone)
+                .version(version)
+                .build();
+    }
+}
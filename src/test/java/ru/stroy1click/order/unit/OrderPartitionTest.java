@@ -0,0 +1,76 @@
+package ru.stroy1click.order.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.stroy1click.order.repository.OrderPartitionRepository;
+import ru.stroy1click.order.service.impl.OrderPartitionServiceImpl;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderPartitionTest {
+
+    @Mock
+    private OrderPartitionRepository orderPartitionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderPartitionServiceImpl orderPartitionService;
+
+    private LocalDate currentMonth;
+
+    @BeforeEach
+    public void setUp() {
+        this.orderPartitionService = new OrderPartitionServiceImpl(
+                this.orderPartitionRepository, new TransactionTemplate(this.transactionManager), 2
+        );
+        this.currentMonth = LocalDate.now().withDayOfMonth(1);
+    }
+
+    @Test
+    public void createAhead_ShouldCreateOnlyMissingMonths() {
+        when(this.orderPartitionRepository.isPartitioned()).thenReturn(true);
+        when(this.orderPartitionRepository.exists(any())).thenReturn(true, false, false);
+
+        assertEquals(2, this.orderPartitionService.createAhead());
+
+        verify(this.orderPartitionRepository, times(3)).lock();
+        verify(this.orderPartitionRepository, never()).create(this.currentMonth);
+        verify(this.orderPartitionRepository).create(this.currentMonth.plusMonths(1));
+        verify(this.orderPartitionRepository).create(this.currentMonth.plusMonths(2));
+    }
+
+    @Test
+    public void createAhead_ShouldDoNothing_WhenOrdersIsNotPartitioned() {
+        when(this.orderPartitionRepository.isPartitioned()).thenReturn(false);
+
+        assertEquals(0, this.orderPartitionService.createAhead());
+
+        verify(this.orderPartitionRepository, never()).lock();
+        verify(this.orderPartitionRepository, never()).create(any());
+    }
+
+    @Test
+    public void createAhead_ShouldCreateNextMonths_WhenOneMonthFails() {
+        when(this.orderPartitionRepository.isPartitioned()).thenReturn(true);
+        when(this.orderPartitionRepository.exists(any())).thenReturn(false);
+        // строки этого месяца уже лежат в orders_default
+        doThrow(new DataIntegrityViolationException("default partition would be violated"))
+                .when(this.orderPartitionRepository).create(this.currentMonth);
+
+        assertEquals(2, this.orderPartitionService.createAhead());
+
+        verify(this.orderPartitionRepository).create(this.currentMonth.plusMonths(2));
+    }
+}
@@ -0,0 +1,103 @@
+package ru.stroy1click.order.unit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateType;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import ru.stroy1click.order.ratelimit.OrderRateLimiter;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderRateLimiterTest {
+
+    private RedissonClient redissonClient;
+
+    private MeterRegistry meterRegistry;
+
+    private OrderRateLimiter orderRateLimiter;
+
+    @BeforeEach
+    public void setUp() {
+        this.redissonClient = mock(RedissonClient.class);
+        this.meterRegistry = new SimpleMeterRegistry();
+        // период в час, чтобы окно не сменилось посреди теста
+        this.orderRateLimiter = new OrderRateLimiter(
+                this.redissonClient, this.meterRegistry,
+                3, Duration.ofHours(1),
+                1, Duration.ofHours(1),
+                false
+        );
+    }
+
+    @Test
+    public void tryAcquire_ShouldRejectWithRetryAfter_WhenLimitExceeded() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, this.orderRateLimiter.tryAcquire("user:1", false));
+        }
+
+        long retryAfterSeconds = this.orderRateLimiter.tryAcquire("user:1", false);
+
+        assertTrue(retryAfterSeconds > 0 && retryAfterSeconds <= 3600, "retryAfter = " + retryAfterSeconds);
+        assertEquals(1, rejected("read"));
+        verifyNoInteractions(this.redissonClient);
+    }
+
+    @Test
+    public void tryAcquire_ShouldKeepSeparateBucketsPerClient() {
+        assertEquals(0, this.orderRateLimiter.tryAcquire("user:1", true));
+        assertTrue(this.orderRateLimiter.tryAcquire("user:1", true) > 0);
+
+        assertEquals(0, this.orderRateLimiter.tryAcquire("user:2", true));
+        assertEquals(0, this.orderRateLimiter.tryAcquire("ip:10.0.0.1", true));
+    }
+
+    @Test
+    public void tryAcquire_ShouldKeepReadsAvailable_WhenWritesExhausted() {
+        assertEquals(0, this.orderRateLimiter.tryAcquire("user:1", true));
+        assertTrue(this.orderRateLimiter.tryAcquire("user:1", true) > 0);
+
+        assertEquals(0, this.orderRateLimiter.tryAcquire("user:1", false));
+    }
+
+    @Test
+    public void tryAcquire_Distributed_ShouldSetRateAndTtlOnlyWhenLimiterIsCreated() {
+        OrderRateLimiter distributedLimiter = new OrderRateLimiter(
+                this.redissonClient, this.meterRegistry,
+                3, Duration.ofHours(1),
+                1, Duration.ofHours(1),
+                true
+        );
+        RRateLimiter rateLimiter = mock(RRateLimiter.class);
+        when(this.redissonClient.getRateLimiter(anyString())).thenReturn(rateLimiter);
+        // первый запрос - лимитера в Redis ещё нет
+        when(rateLimiter.tryAcquire())
+                .thenThrow(new RedisException("RateLimiter is not initialized"))
+                .thenReturn(true);
+        when(rateLimiter.trySetRate(any(), anyLong(), anyLong(), any())).thenReturn(true);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, distributedLimiter.tryAcquire("user:1", false));
+        }
+
+        verify(rateLimiter, times(1))
+                .trySetRate(RateType.OVERALL, 3, Duration.ofHours(1).toMillis(), RateIntervalUnit.MILLISECONDS);
+        verify(rateLimiter, times(1)).expire(any(Duration.class));
+        verify(rateLimiter, never()).expireAsync(any(Duration.class));
+    }
+
+    private double rejected(String bucket) {
+        return this.meterRegistry.get("order.rate.limit.requests")
+                .tag("bucket", bucket)
+                .tag("result", "rejected")
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,75 @@
+package ru.stroy1click.order.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.MessageSource;
+import ru.stroy1click.order.dto.OrderStatsDto;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.exception.ValidationException;
+import ru.stroy1click.order.repository.OrderStatsRepository;
+import ru.stroy1click.order.service.impl.OrderStatsServiceImpl;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderStatsTest {
+
+    @Mock
+    private OrderStatsRepository orderStatsRepository;
+
+    @Mock
+    private MessageSource messageSource;
+
+    @InjectMocks
+    private OrderStatsServiceImpl orderStatsService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void get_ShouldFillMissingStatusesAndDaysWithZeros() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 3);
+        when(this.orderStatsRepository.countByStatus()).thenReturn(Map.of(OrderStatus.PAID, 5L));
+        when(this.orderStatsRepository.countByStatusForUser(10L)).thenReturn(Map.of(OrderStatus.CREATED, 1L));
+        when(this.orderStatsRepository.countByDay(from, to)).thenReturn(Map.of(from.plusDays(1), 7L));
+
+        OrderStatsDto stats = this.orderStatsService.get(10L, from, to);
+
+        assertEquals(OrderStatus.values().length, stats.getByStatus().size());
+        assertEquals(5L, stats.getByStatus().get(OrderStatus.PAID));
+        assertEquals(0L, stats.getByStatus().get(OrderStatus.CREATED));
+        assertEquals(1L, stats.getByUserStatus().get(OrderStatus.CREATED));
+        assertEquals(Map.of(from, 0L, from.plusDays(1), 7L, to, 0L), stats.getByDay());
+    }
+
+    @Test
+    public void get_ShouldNotQueryUserCounters_WhenUserIdIsNull() {
+        OrderStatsDto stats = this.orderStatsService.get(null, null, null);
+
+        assertNull(stats.getByUserStatus());
+        assertEquals(30, stats.getByDay().size());
+        verify(this.orderStatsRepository, never()).countByStatusForUser(any());
+    }
+
+    @Test
+    public void get_ShouldThrowValidationException_WhenPeriodIsTooLong() {
+        when(this.messageSource.getMessage(eq("error.stats.invalid_period"), any(), any()))
+                .thenReturn("Период статистики должен быть от 1 до 366 дней");
+
+        assertThrows(ValidationException.class, () -> this.orderStatsService.get(
+                null, LocalDate.of(2020, 1, 1), LocalDate.of(2025, 1, 1)
+        ));
+        verifyNoInteractions(this.orderStatsRepository);
+    }
+}
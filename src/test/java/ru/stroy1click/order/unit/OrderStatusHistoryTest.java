@@ -0,0 +1,73 @@
+package ru.stroy1click.order.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.MessageSource;
+import ru.stroy1click.order.datasource.ReadYourWrites;
+import ru.stroy1click.order.entity.OrderStatus;
+import ru.stroy1click.order.exception.NotFoundException;
+import ru.stroy1click.order.exception.ValidationException;
+import ru.stroy1click.order.repository.OrderStatusHistoryRepository;
+import ru.stroy1click.order.service.impl.OrderStatusHistoryServiceImpl;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderStatusHistoryTest {
+
+    @Mock
+    private OrderStatusHistoryRepository orderStatusHistoryRepository;
+
+    @Mock
+    private MessageSource messageSource;
+
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    @InjectMocks
+    private OrderStatusHistoryServiceImpl orderStatusHistoryService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(this.readYourWrites.read(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+    }
+
+    @Test
+    public void getHistory_ShouldThrowNotFoundException_WhenNoEvents() {
+        when(this.orderStatusHistoryRepository.findByOrderId(1L)).thenReturn(List.of());
+        when(this.messageSource.getMessage(eq("error.order.not_found"), any(), any())).thenReturn("Заказ не найден");
+
+        assertThrows(NotFoundException.class, () -> this.orderStatusHistoryService.getHistory(1L));
+    }
+
+    @Test
+    public void getInStatusSince_ShouldClampSize() {
+        LocalDateTime since = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        this.orderStatusHistoryService.getInStatusSince(OrderStatus.PAID, since, 100_000);
+
+        verify(this.orderStatusHistoryRepository).findInStatusSince(OrderStatus.PAID, since, 1_000);
+    }
+
+    @Test
+    public void getInStatusSince_ShouldRejectStatusWithoutIndex() {
+        when(this.messageSource.getMessage(eq("error.status_since.unsupported_status"), any(), any()))
+                .thenReturn("Выборка недоступна");
+
+        assertThrows(ValidationException.class,
+                () -> this.orderStatusHistoryService.getInStatusSince(OrderStatus.DELIVERED, null, null));
+        verify(this.orderStatusHistoryRepository, never()).findInStatusSince(any(), any(), anyInt());
+    }
+}
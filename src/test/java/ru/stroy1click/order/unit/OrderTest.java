@@ -1,24 +1,36 @@
 package ru.stroy1click.order.unit;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.context.MessageSource;
+import org.springframework.data.domain.Pageable;
 import ru.stroy1click.order.cache.CacheClear;
-import ru.stroy1click.order.client.NotificationClient;
+import ru.stroy1click.order.cache.OrderListCache;
+import ru.stroy1click.order.datasource.ReadYourWrites;
+import ru.stroy1click.order.dto.OrderBatchResultDto;
 import ru.stroy1click.order.dto.OrderDto;
 import ru.stroy1click.order.dto.OrderItemDto;
+import ru.stroy1click.order.dto.OrderPageDto;
+import ru.stroy1click.order.dto.OrderPatchDto;
 import ru.stroy1click.order.entity.Order;
 import ru.stroy1click.order.entity.OrderItem;
+import ru.stroy1click.order.exception.ConflictException;
 import ru.stroy1click.order.exception.NotFoundException;
+import ru.stroy1click.order.exception.PreconditionRequiredException;
+import ru.stroy1click.order.exception.ValidationException;
 import ru.stroy1click.order.mapper.OrderItemMapper;
 import ru.stroy1click.order.mapper.OrderMapper;
 import ru.stroy1click.order.entity.OrderStatus;
 import ru.stroy1click.order.repository.OrderRepository;
+import ru.stroy1click.order.service.NotificationOutboxService;
 import ru.stroy1click.order.service.impl.OrderServiceImpl;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -40,7 +52,16 @@ class OrderTest {
     private CacheClear cacheClear;
 
     @Mock
-    private NotificationClient notificationClient;
+    private OrderListCache orderListCache;
+
+    @Mock
+    private NotificationOutboxService notificationOutboxService;
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private ReadYourWrites readYourWrites;
 
     @InjectMocks
     private OrderServiceImpl orderService;
@@ -56,6 +77,8 @@ class OrderTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(this.readYourWrites.read(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
 
         // Инициализация общих данных для всех тестов
         this.orderId = 1L;
@@ -88,38 +111,114 @@ class OrderTest {
 
     @Test
     public void get_ShouldReturnOrderDto_WhenOrderExists() {
-        when(this.orderRepository.findById(this.orderId)).thenReturn(Optional.of(this.order));
+        when(this.orderRepository.findWithItemsById(this.orderId)).thenReturn(Optional.of(this.order));
         when(this.orderMapper.toDto(this.order)).thenReturn(this.orderDto);
 
         OrderDto result = this.orderService.get(this.orderId);
 
         assertNotNull(result);
         assertEquals(this.orderDto, result);
-        verify(this.orderRepository).findById(this.orderId);
+        verify(this.orderRepository).findWithItemsById(this.orderId);
         verify(this.orderMapper).toDto(this.order);
     }
 
     @Test
     public void get_ShouldThrowNotFoundException_WhenOrderDoesNotExist() {
-        when(this.orderRepository.findById(this.orderId)).thenReturn(Optional.empty());
+        when(this.orderRepository.findWithItemsById(this.orderId)).thenReturn(Optional.empty());
         when(this.messageSource.getMessage(eq("error.order.not_found"), any(), any())).thenReturn("Заказ не найден");
 
         assertThrows(NotFoundException.class, () -> this.orderService.get(this.orderId));
-        verify(this.orderRepository).findById(this.orderId);
+        verify(this.orderRepository).findWithItemsById(this.orderId);
+    }
+
+    @Test
+    public void getVersion_ShouldNotLoadOrderGraph() {
+        when(this.orderRepository.findVersionById(this.orderId)).thenReturn(Optional.of(3L));
+
+        assertEquals(3L, this.orderService.getVersion(this.orderId));
+        verify(this.orderRepository, never()).findWithItemsById(any());
+    }
+
+    @Test
+    public void getVersion_ShouldThrowNotFoundException_WhenOrderDoesNotExist() {
+        when(this.orderRepository.findVersionById(this.orderId)).thenReturn(Optional.empty());
+        when(this.messageSource.getMessage(eq("error.order.not_found"), any(), any())).thenReturn("Заказ не найден");
+
+        assertThrows(NotFoundException.class, () -> this.orderService.getVersion(this.orderId));
     }
 
     @Test
-    public void getAll_ShouldReturnList(){
-        when(this.orderRepository.findAll()).thenReturn(List.of(this.order));
+    public void getAll_ShouldReturnPage_WithNextCursor_WhenPageIsFull(){
+        when(this.orderRepository.findPage(isNull(), isNull(), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(List.of(this.order));
         when(this.orderMapper.toDto(List.of(this.order))).thenReturn(List.of(this.orderDto));
 
-        List<OrderDto> dtoList = this.orderService.getAll();
+        OrderPageDto page = this.orderService.getAll(null, 1, null, null, null);
 
-        assertEquals(1, dtoList.size());
-        verify(this.orderRepository).findAll();
+        assertEquals(1, page.getOrders().size());
+        assertEquals(String.valueOf(this.orderId), page.getNextCursor());
         verify(this.orderMapper).toDto(List.of(this.order));
     }
 
+    @Test
+    public void getAll_ShouldReturnPage_WithoutNextCursor_WhenPageIsNotFull(){
+        when(this.orderRepository.findPage(eq(this.orderId), eq(OrderStatus.CREATED), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(this.orderMapper.toDto(List.<Order>of())).thenReturn(List.of());
+
+        OrderPageDto page = this.orderService.getAll(String.valueOf(this.orderId), 10, OrderStatus.CREATED, null, null);
+
+        assertTrue(page.getOrders().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void getAll_ShouldServePageFromListCache_WhenNoFilters(){
+        when(this.orderListCache.getPage(null, 1)).thenReturn(Optional.of(List.of(this.orderDto)));
+
+        OrderPageDto page = this.orderService.getAll(null, 1, null, null, null);
+
+        assertEquals(List.of(this.orderDto), page.getOrders());
+        assertEquals(String.valueOf(this.orderId), page.getNextCursor());
+        verify(this.orderRepository, never()).findPage(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void getAll_ShouldThrowValidationException_WhenCursorIsInvalid(){
+        when(this.messageSource.getMessage(eq("error.cursor.invalid"), any(), any())).thenReturn("Некорректный курсор пагинации");
+
+        assertThrows(ValidationException.class, () -> this.orderService.getAll("abc", 10, null, null, null));
+        verify(this.orderRepository, never()).findPage(any(), any(), any(), any(), any());
+    }
+
+
+    @Test
+    public void getPageByUserId_ShouldContinueAfterCursorOfPreviousPage(){
+        when(this.orderRepository.findPageByUserId(eq(this.userId), any(), any(), any(), any(), any(), any(Pageable.class)))
+                .thenReturn(List.of(this.order));
+        when(this.orderMapper.toDto(List.of(this.order))).thenReturn(List.of(this.orderDto));
+
+        OrderPageDto first = this.orderService.getPageByUserId(this.userId, null, 1, null, null, null);
+        this.orderService.getPageByUserId(this.userId, first.getNextCursor(), 1, OrderStatus.CREATED, null, null);
+
+        assertNotNull(first.getNextCursor());
+        verify(this.orderRepository).findPageByUserId(
+                eq(this.userId), isNull(), isNull(), isNull(), isNull(), isNull(), any(Pageable.class)
+        );
+        verify(this.orderRepository).findPageByUserId(
+                eq(this.userId), eq(this.orderDto.getCreatedAt()), eq(this.orderId), eq(OrderStatus.CREATED),
+                isNull(), isNull(), any(Pageable.class)
+        );
+    }
+
+    @Test
+    public void getPageByUserId_ShouldThrowValidationException_WhenCursorIsInvalid(){
+        when(this.messageSource.getMessage(eq("error.cursor.invalid"), any(), any())).thenReturn("Некорректный курсор пагинации");
+
+        assertThrows(ValidationException.class,
+                () -> this.orderService.getPageByUserId(this.userId, "abc", 10, null, null, null));
+        verify(this.orderRepository, never()).findPageByUserId(any(), any(), any(), any(), any(), any(), any());
+    }
 
     @Test
     public void getByUserId_ShouldReturnList_WhenExists() {
@@ -143,42 +242,115 @@ class OrderTest {
 
         when(this.orderMapper.toEntity(this.orderDto)).thenReturn(newOrderEntity);
         when(this.orderItemMapper.toEntity(anyList())).thenReturn(List.of(this.orderItem));
-        doNothing().when(this.notificationClient).sendOrderNotification(any(OrderDto.class));
+        when(this.orderRepository.save(newOrderEntity)).thenReturn(newOrderEntity);
+        when(this.orderMapper.toDto(newOrderEntity)).thenReturn(this.orderDto);
 
         this.orderService.create(this.orderDto);
 
         assertEquals(newOrderEntity, this.orderItem.getOrder());
         verify(this.orderRepository).save(newOrderEntity);
+        verify(this.notificationOutboxService).enqueue(this.orderDto);
     }
 
 
     @Test
-    public void update_ShouldSaveUpdatedOrder_WhenExists() {
-        when(this.orderRepository.findById(this.orderId)).thenReturn(Optional.of(this.order));
-        when(this.orderMapper.toEntity(any(OrderDto.class))).thenReturn(this.order);
+    @SuppressWarnings("unchecked")
+    public void createBatch_ShouldSaveOnlyValidOrders() {
+        OrderDto invalidDto = OrderDto.builder().contactPhone("1234567").build();
+        ConstraintViolation<OrderDto> violation = mock(ConstraintViolation.class);
+        Order newOrderEntity = new Order();
+        Order savedOrder = new Order();
+        savedOrder.setId(42L);
+        savedOrder.setUserId(this.userId);
 
-        this.orderService.update(this.orderId, this.orderDto);
+        when(violation.getMessage()).thenReturn("Номер телефона должен быть валидным");
+        when(this.validator.validate(this.orderDto)).thenReturn(Set.of());
+        when(this.validator.validate(invalidDto)).thenReturn(Set.of(violation));
+        when(this.orderMapper.toEntity(this.orderDto)).thenReturn(newOrderEntity);
+        when(this.orderRepository.saveAll(List.of(newOrderEntity))).thenReturn(List.of(savedOrder));
 
-        ArgumentCaptor<OrderDto> dtoCaptor = ArgumentCaptor.forClass(OrderDto.class);
-        verify(this.orderMapper).toEntity(dtoCaptor.capture());
+        List<OrderBatchResultDto> results = this.orderService.createBatch(List.of(invalidDto, this.orderDto));
 
-        OrderDto capturedDto = dtoCaptor.getValue();
+        assertEquals(2, results.size());
+        assertEquals("Номер телефона должен быть валидным", results.getFirst().getError());
+        assertNull(results.getFirst().getId());
+        assertEquals(42L, results.get(1).getId());
+        assertNull(results.get(1).getError());
+        verify(this.cacheClear).clearOrdersByUserId(this.userId);
+    }
+
+    @Test
+    public void update_ShouldUpdateFieldsWithSingleStatement_WhenExists() {
+        OrderPatchDto patch = OrderPatchDto.builder()
+                .orderStatus(OrderStatus.PAID)
+                .version(3L)
+                .build();
+        OrderRepository.UpdatedOrder updatedOrder = mock(OrderRepository.UpdatedOrder.class);
+        when(updatedOrder.getUserId()).thenReturn(this.userId);
+        when(updatedOrder.getVersion()).thenReturn(4L);
+        when(this.orderRepository.updateFields(eq(this.orderId), isNull(), eq("PAID"),
+                isNull(), any(LocalDateTime.class), eq(3L))).thenReturn(Optional.of(updatedOrder));
+
+        Long version = this.orderService.update(this.orderId, patch);
+
+        assertEquals(4L, version);
+        verify(this.orderRepository, never()).findById(any());
+        verify(this.orderRepository, never()).save(any());
+        verify(this.orderRepository, never()).existsById(any());
+        verify(this.cacheClear).clearOrdersByUserId(this.userId);
+        verify(this.orderListCache).patchAfterCommit(eq(this.orderId), eq(4L), any());
+    }
 
-        assertEquals(this.orderId, capturedDto.getId());
-        assertTrue(capturedDto.getUpdatedAt().isAfter(this.orderDto.getUpdatedAt()));
+    @Test
+    public void update_ShouldThrowConflictException_WhenVersionIsStale() {
+        OrderPatchDto patch = OrderPatchDto.builder()
+                .orderStatus(OrderStatus.PAID)
+                .version(3L)
+                .build();
+        when(this.orderRepository.updateFields(any(), any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+        when(this.orderRepository.existsById(this.orderId)).thenReturn(true);
+        when(this.messageSource.getMessage(eq("error.order.version_conflict"), any(), any()))
+                .thenReturn("Заказ был изменён другим запросом");
 
-        verify(this.orderRepository).save(this.order);
+        assertThrows(ConflictException.class, () -> this.orderService.update(this.orderId, patch));
+        verify(this.cacheClear, never()).clearOrdersByUserId(any());
+        verify(this.orderListCache, never()).patchAfterCommit(any(), any(), any());
     }
 
     @Test
     public void update_ShouldThrowNotFoundException_WhenOrderDoesNotExist() {
-        when(this.orderRepository.findById(this.orderId)).thenReturn(Optional.empty());
+        OrderPatchDto patch = OrderPatchDto.builder()
+                .notes("New notes")
+                .version(0L)
+                .build();
+        when(this.orderRepository.updateFields(any(), any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+        when(this.orderRepository.existsById(this.orderId)).thenReturn(false);
         when(this.messageSource.getMessage(eq("error.order.not_found"), any(), any())).thenReturn("Заказ не найден");
 
-        assertThrows(NotFoundException.class, () -> this.orderService.update(this.orderId, this.orderDto));
+        assertThrows(NotFoundException.class, () -> this.orderService.update(this.orderId, patch));
         verify(this.orderRepository, never()).save(any());
     }
 
+    @Test
+    public void update_ShouldThrowPreconditionRequiredException_WhenVersionIsMissing() {
+        OrderPatchDto patch = OrderPatchDto.builder()
+                .orderStatus(OrderStatus.PAID)
+                .build();
+
+        assertThrows(PreconditionRequiredException.class, () -> this.orderService.update(this.orderId, patch));
+        verify(this.orderRepository, never()).updateFields(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void update_ShouldThrowValidationException_WhenNothingToChange() {
+        OrderPatchDto patch = OrderPatchDto.builder()
+                .version(3L)
+                .build();
+
+        assertThrows(ValidationException.class, () -> this.orderService.update(this.orderId, patch));
+        verify(this.orderRepository, never()).updateFields(any(), any(), any(), any(), any(), any());
+    }
+
     @Test
     public void delete_ShouldDeleteOrder_WhenExists() {
         when(this.orderRepository.findById(this.orderId)).thenReturn(Optional.of(this.order));
@@ -187,6 +359,7 @@ class OrderTest {
 
         verify(this.orderRepository).delete(this.order);
         verify(this.cacheClear).clearOrdersByUserId(this.userId);
+        verify(this.orderListCache).removeAfterCommit(this.orderId);
     }
 
     @Test
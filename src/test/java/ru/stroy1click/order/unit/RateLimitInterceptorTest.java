@@ -0,0 +1,76 @@
+package ru.stroy1click.order.unit;
+
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.stroy1click.order.ratelimit.OrderRateLimiter;
+import ru.stroy1click.order.ratelimit.RateLimitInterceptor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+class RateLimitInterceptorTest {
+
+    private OrderRateLimiter orderRateLimiter;
+
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @BeforeEach
+    public void setUp() {
+        this.orderRateLimiter = mock(OrderRateLimiter.class);
+        this.rateLimitInterceptor = new RateLimitInterceptor(this.orderRateLimiter, "X-User-Id", List.of("10.0.0.1"));
+    }
+
+    @Test
+    public void preHandle_ShouldKeyOnPrincipal_WhenAuthenticated() {
+        MockHttpServletRequest request = request("203.0.113.7", "other-user");
+        request.setUserPrincipal(() -> "42");
+
+        this.rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        verify(this.orderRateLimiter).tryAcquire("user:42", false);
+    }
+
+    @Test
+    public void preHandle_ShouldIgnoreUserHeader_FromUntrustedAddress() {
+        this.rateLimitInterceptor.preHandle(request("203.0.113.7", "42"), new MockHttpServletResponse(), null);
+        this.rateLimitInterceptor.preHandle(request("203.0.113.7", "43"), new MockHttpServletResponse(), null);
+
+        // смена заголовка не даёт нового лимита
+        verify(this.orderRateLimiter, times(2)).tryAcquire("ip:203.0.113.7", false);
+    }
+
+    @Test
+    public void preHandle_ShouldKeyOnUserHeader_FromTrustedProxy() {
+        this.rateLimitInterceptor.preHandle(request("10.0.0.1", "42"), new MockHttpServletResponse(), null);
+        this.rateLimitInterceptor.preHandle(request("10.0.0.1", null), new MockHttpServletResponse(), null);
+
+        verify(this.orderRateLimiter).tryAcquire("user:42", false);
+        verify(this.orderRateLimiter).tryAcquire("ip:10.0.0.1", false);
+    }
+
+    @Test
+    public void preHandle_ShouldNotSpendPermit_OnAsyncDispatch() {
+        MockHttpServletRequest request = request("203.0.113.7", null);
+        request.setRequestURI("/api/v1/orders/export");
+        this.rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // повторный вход после выгрузки: ответ уже отправлен, лимит проверен при исходном запросе
+        request.setDispatcherType(DispatcherType.ASYNC);
+        when(this.orderRateLimiter.tryAcquire(anyString(), anyBoolean())).thenReturn(1L);
+        assertTrue(this.rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null));
+
+        verify(this.orderRateLimiter, times(1)).tryAcquire("ip:203.0.113.7", false);
+    }
+
+    private MockHttpServletRequest request(String remoteAddr, String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/orders");
+        request.setRemoteAddr(remoteAddr);
+        if (userId != null) request.addHeader("X-User-Id", userId);
+        return request;
+    }
+}
@@ -0,0 +1,210 @@
+package ru.stroy1click.order.unit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import ru.stroy1click.order.cache.CacheInvalidationMessage;
+import ru.stroy1click.order.cache.CachedValue;
+import ru.stroy1click.order.cache.TwoLevelCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwoLevelCacheTest {
+
+    private ConcurrentMapCache remoteCache;
+
+    private MeterRegistry meterRegistry;
+
+    private List<CacheInvalidationMessage> published;
+
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        this.remoteCache = new ConcurrentMapCache("order");
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.published = new ArrayList<>();
+        this.cache = cache(this.remoteCache, 1.0);
+    }
+
+    @Test
+    public void get_ShouldServeFromLocalCache_AfterFirstRemoteHit() {
+        this.remoteCache.put(1L, "order-1");
+
+        assertEquals("order-1", this.cache.get(1L).get());
+        // удаляем напрямую из L2: второе чтение должно обслужиться из L1
+        this.remoteCache.evict(1L);
+        assertEquals("order-1", this.cache.get(1L).get());
+
+        assertEquals(1.0, hits("l2"));
+        assertEquals(1.0, hits("l1"));
+    }
+
+    @Test
+    public void evict_ShouldClearBothLevels_AndPublishInvalidation() {
+        this.cache.put(1L, "order-1");
+
+        this.cache.evict(1L);
+
+        assertNull(this.cache.get(1L));
+        assertNull(this.remoteCache.get(1L));
+        assertEquals(2, this.published.size());
+        assertEquals(1L, this.published.getLast().getKey());
+        assertEquals("instance-1", this.published.getLast().getInstanceId());
+    }
+
+    @Test
+    public void get_WithLoader_ShouldLoadOnce_AndKeepValueLocally() {
+        List<String> loads = new ArrayList<>();
+
+        String first = this.cache.get(1L, () -> {
+            loads.add("load");
+            return "order-1";
+        });
+        String second = this.cache.get(1L, () -> {
+            loads.add("load");
+            return "order-1";
+        });
+
+        assertEquals("order-1", first);
+        assertEquals("order-1", second);
+        assertEquals(1, loads.size());
+    }
+
+    @Test
+    public void get_WithLoader_ShouldLoadOnce_When500ThreadsMissConcurrently() throws Exception {
+        // L2 без собственной блокировки по ключу: одну загрузку должен обеспечить сам TwoLevelCache
+        ConcurrentMapCache racyRemote = new ConcurrentMapCache("order") {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T get(Object key, Callable<T> valueLoader) {
+                ValueWrapper existing = get(key);
+                if (existing != null) return (T) existing.get();
+                try {
+                    T value = valueLoader.call();
+                    put(key, value);
+                    return value;
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+            }
+        };
+        TwoLevelCache cache = cache(racyRemote, 0);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 500; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(1L, () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep(200);
+                        return "order-1";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("order-1", result.get(10, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void get_WithLoader_ShouldRefreshEarly_WhenCloseToExpiration() {
+        // огромный beta - обновление считается назревшим при любом чтении
+        TwoLevelCache cache = cache(this.remoteCache, 1e12);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, () -> "order-" + loads.incrementAndGet());
+        String refreshed = cache.get(1L, () -> "order-" + loads.incrementAndGet());
+
+        assertEquals(2, loads.get());
+        assertEquals("order-2", refreshed);
+        assertEquals("order-2", ((CachedValue) this.remoteCache.get(1L).get()).getValue());
+    }
+
+    @Test
+    public void get_WithLoader_ShouldNotRefreshEarly_WhenDisabled() {
+        TwoLevelCache cache = cache(this.remoteCache, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, () -> "order-" + loads.incrementAndGet());
+        cache.get(1L, () -> "order-" + loads.incrementAndGet());
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void get_WithLoader_ShouldTimeLoadsAndHitsSeparately() {
+        this.cache.get(1L, () -> "order-1");
+        this.cache.get(1L, () -> "order-1");
+        this.cache.get(1L, () -> "order-1");
+
+        assertEquals(1, timerCount("load"));
+        assertEquals(2, timerCount("l1"));
+        assertEquals(0, timerCount("l2"));
+    }
+
+    @Test
+    public void get_WithLoader_ShouldCountRemoteHitsAndMisses() {
+        this.cache.get(1L, () -> "order-1");
+
+        assertEquals(1.0, misses("l1"));
+        assertEquals(1.0, misses("l2"));
+        assertEquals(0.0, hits("l2"));
+
+        // вторая реплика с пустым L1 находит значение, загруженное первой, в L2
+        TwoLevelCache otherReplica = cache(this.remoteCache, 0);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("order-1", otherReplica.get(1L, () -> "order-" + loads.incrementAndGet()));
+
+        assertEquals(0, loads.get());
+        assertEquals(2.0, misses("l1"));
+        assertEquals(1.0, misses("l2"));
+        assertEquals(1.0, hits("l2"));
+        assertEquals(1, timerCount("l2"));
+    }
+
+    private TwoLevelCache cache(ConcurrentMapCache remote, double earlyRefreshBeta) {
+        return new TwoLevelCache(
+                "order", remote, 100, Duration.ofMinutes(1), Duration.ofDays(1), earlyRefreshBeta,
+                "instance-1", this.published::add, this.meterRegistry
+        );
+    }
+
+    private double hits(String tier) {
+        return this.meterRegistry.get("order.cache.gets")
+                .tag("tier", tier)
+                .tag("result", "hit")
+                .counter()
+                .count();
+    }
+
+    private double misses(String tier) {
+        return this.meterRegistry.get("order.cache.gets")
+                .tag("tier", tier)
+                .tag("result", "miss")
+                .counter()
+                .count();
+    }
+
+    private long timerCount(String result) {
+        return this.meterRegistry.get("order.cache.get")
+                .tag("result", result)
+                .timer()
+                .count();
+    }
+}